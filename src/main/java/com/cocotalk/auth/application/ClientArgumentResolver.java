@@ -5,6 +5,7 @@ import com.cocotalk.auth.dto.common.ClientType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.MethodParameter;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.support.WebDataBinderFactory;
@@ -13,13 +14,23 @@ import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 
 import javax.servlet.http.HttpServletRequest;
-import java.net.InetSocketAddress;
 
+/**
+ *
+ * 요청자의 client 정보 (ip, user agent, 기기 타입)
+ * X-Forwarded-For의 주소는 앞쪽일수록 요청자가 직접 써넣을 수 있으므로, 신뢰하는 proxy가 추가한 주소만 사용합니다.
+ *
+ * client-ip.trusted-proxies : 서버 앞의 proxy(gateway, load balancer) 수, 0이면 X-Forwarded-For를 사용하지 않고 접속 주소 사용
+ *
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ClientArgumentResolver implements HandlerMethodArgumentResolver {
 
+    @Value("${client-ip.trusted-proxies:1}")
+    int trustedProxies;
+
     @Override
     public boolean supportsParameter(MethodParameter parameter) {
         return parameter.getParameterType().equals(ClientInfo.class);
@@ -36,15 +47,7 @@ public class ClientArgumentResolver implements HandlerMethodArgumentResolver {
         String agent = req.getHeader("user-agent");
 
         ClientType clientType = parseClientType(agent);
-        String clientIp;
-        String xForwarded = req.getHeader("X-Forwarded-For");
-        if (StringUtils.isEmpty(xForwarded) || "unknown".equalsIgnoreCase(xForwarded)) {
-            clientIp = req.getRemoteAddr();
-        } else{
-            clientIp = xForwarded.split(",")[0];
-            log.info("[resolveArgument/xForwarded] : " + xForwarded);
-            log.info("[resolveArgument/clientIp] : " + clientIp);
-        }
+        String clientIp = getClientIp(req);
 
         return ClientInfo.builder()
                 .ip(clientIp)
@@ -53,6 +56,21 @@ public class ClientArgumentResolver implements HandlerMethodArgumentResolver {
                 .build();
     }
 
+    /**
+     * 요청자의 ip
+     * 각 proxy는 받은 요청의 접속 주소를 X-Forwarded-For 끝에 추가하므로,
+     * 끝에서 trusted-proxies 번째 주소가 가장 바깥 proxy에 접속한 요청자의 주소입니다.
+     */
+    public String getClientIp(HttpServletRequest req){
+        String xForwarded = req.getHeader("X-Forwarded-For");
+        if (trustedProxies <= 0 || StringUtils.isEmpty(xForwarded) || "unknown".equalsIgnoreCase(xForwarded)) {
+            return req.getRemoteAddr();
+        }
+        String[] forwarded = xForwarded.split(",");
+        // 주소가 proxy 수보다 적으면 가장 바깥 proxy가 추가한 첫 번째 주소
+        return forwarded[Math.max(forwarded.length - trustedProxies, 0)].trim();
+    }
+
     private ClientType parseClientType(String userAgent){
         if(userAgent.contains("Mozilla"))
             return ClientType.WEB;
@@ -0,0 +1,126 @@
+package com.cocotalk.auth.application;
+
+import com.cocotalk.auth.dto.common.response.Response;
+import com.cocotalk.auth.utils.GradientLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+import static com.cocotalk.auth.dto.common.response.ResponseStatus.OVERLOADED;
+
+/**
+ *
+ * AuthController의 동시 처리 요청 수 제한
+ * 한도는 GradientLimiter가 응답 시간을 보고 조정하고, 한도를 넘는 요청은 기다리지 않고 바로 OVERLOADED로 응답합니다.
+ *
+ * 요청은 경로별 우선순위(lane)에 따라 한도의 일부만 사용할 수 있습니다.
+ *   HIGH : 이미 로그인한 사용자의 token 재발급/검증 (/reissue, /device, /tokens/introspect, jwks) - 한도 전체
+ *   NORMAL : 그 외 요청 - 한도 * concurrency-limit.normal-share
+ *   LOW : 새 로그인, 가입, 인증메일 발급 (/signin, /signup, /email/issue) - 한도 * concurrency-limit.low-share
+ * 혼잡해지면 새 로그인부터 거절되고, token 재발급은 계속 처리됩니다.
+ * 응답 시간은 lane별로 평소 값과 비교하므로, 느린 로그인 요청의 비율이 늘어난 것만으로 한도가 줄지 않습니다.
+ *
+ * concurrency-limit.enabled : 사용 여부
+ * concurrency-limit.initial, min, max : 시작/최소/최대 한도
+ * concurrency-limit.smoothing : 한도 변경 시 새 값의 반영 비율
+ *
+ * 한도와 처리 중인 요청 수는 concurrency.limit, concurrency.inflight gauge로,
+ * 거절은 concurrency.rejections{lane} counter로 남깁니다.
+ *
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${concurrency-limit.enabled:true}")
+    boolean enabled;
+    @Value("${concurrency-limit.initial:50}")
+    int initialLimit;
+    @Value("${concurrency-limit.min:10}")
+    int minLimit;
+    @Value("${concurrency-limit.max:400}")
+    int maxLimit;
+    @Value("${concurrency-limit.smoothing:0.2}")
+    double smoothing;
+    @Value("${concurrency-limit.normal-share:0.9}")
+    double normalShare;
+    @Value("${concurrency-limit.low-share:0.6}")
+    double lowShare;
+
+    private GradientLimiter limiter;
+
+    @PostConstruct
+    public void init() {
+        limiter = new GradientLimiter(initialLimit, minLimit, maxLimit, smoothing, Lane.values().length);
+        Gauge.builder("concurrency.limit", limiter, GradientLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("concurrency.inflight", limiter, GradientLimiter::getInflight).register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!enabled) return true;
+        Lane lane = lane(request.getRequestURI());
+        long start = limiter.tryAcquire(share(lane));
+        if (start >= 0) {
+            request.setAttribute(START_ATTRIBUTE, start);
+            return true;
+        }
+        meterRegistry.counter("concurrency.rejections", "lane", lane.name()).increment();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), new Response<>(OVERLOADED));
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) limiter.release((Long) start, lane(request.getRequestURI()).ordinal());
+    }
+
+    private double share(Lane lane) {
+        switch (lane) {
+            case HIGH: return 1.0;
+            case LOW: return lowShare;
+            default: return normalShare;
+        }
+    }
+
+    private static Lane lane(String uri) {
+        switch (uri) {
+            case "/reissue":
+            case "/device":
+            case "/tokens/introspect":
+            case "/.well-known/jwks.json":
+                return Lane.HIGH;
+            case "/signin":
+            case "/signup":
+            case "/email/issue":
+                return Lane.LOW;
+            default:
+                return Lane.NORMAL;
+        }
+    }
+
+    private enum Lane {
+        HIGH, NORMAL, LOW
+    }
+}
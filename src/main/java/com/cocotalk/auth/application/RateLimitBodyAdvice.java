@@ -0,0 +1,49 @@
+package com.cocotalk.auth.application;
+
+import com.cocotalk.auth.dto.email.issue.IssueInput;
+import com.cocotalk.auth.dto.signin.SigninInput;
+import com.cocotalk.auth.exception.CustomException;
+import com.cocotalk.auth.service.RateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.Locale;
+
+import static com.cocotalk.auth.dto.common.response.ResponseStatus.TOO_MANY_REQUESTS;
+
+/**
+ *
+ * 요청 body의 로그인 아이디, 이메일별 요청 수 제한
+ * body를 읽은 직후, DB 조회나 hash 계산, 메일 발송 전에 확인합니다.
+ *
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class RateLimitBodyAdvice extends RequestBodyAdviceAdapter {
+    private final RateLimiter rateLimiter;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType == SigninInput.class || targetType == IssueInput.class;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        boolean allowed = true;
+        if (body instanceof SigninInput) {
+            allowed = rateLimiter.tryAcquire(RateLimiter.SIGNIN_CID, ((SigninInput) body).getCid());
+        } else if (body instanceof IssueInput) {
+            String email = ((IssueInput) body).getEmail();
+            allowed = rateLimiter.tryAcquire(RateLimiter.EMAIL_ADDRESS, email == null ? null : email.toLowerCase(Locale.ROOT));
+        }
+        if (!allowed) throw new CustomException(TOO_MANY_REQUESTS);
+        return body;
+    }
+}
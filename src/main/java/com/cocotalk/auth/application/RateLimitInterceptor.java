@@ -0,0 +1,39 @@
+package com.cocotalk.auth.application;
+
+import com.cocotalk.auth.dto.common.response.Response;
+import com.cocotalk.auth.service.RateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+import static com.cocotalk.auth.dto.common.response.ResponseStatus.TOO_MANY_REQUESTS;
+
+/**
+ *
+ * client ip별 요청 수 제한 (WebConfig에서 경로별 규칙으로 등록)
+ * 요청 body를 읽기 전에 확인하고, 제한을 넘으면 controller를 거치지 않고 바로 TOO_MANY_REQUESTS를 응답합니다.
+ *
+ */
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+    private final RateLimiter rateLimiter;
+    private final ClientArgumentResolver clientArgumentResolver;
+    private final ObjectMapper objectMapper;
+    private final String ruleName;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (rateLimiter.tryAcquire(ruleName, clientArgumentResolver.getClientIp(request))) return true;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), new Response<>(TOO_MANY_REQUESTS));
+        return false;
+    }
+}
@@ -0,0 +1,43 @@
+package com.cocotalk.auth.application;
+
+import com.cocotalk.auth.dto.common.TokenInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String TOKEN_INFO_ATTRIBUTE = TokenArgumentResolver.class.getName() + ".TOKEN_INFO";
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.getParameterType().equals(TokenInfo.class);
+    }
+
+    @Override
+    public Object resolveArgument(
+            MethodParameter parameter,
+            ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest,
+            WebDataBinderFactory binderFactory
+    ){
+        // 같은 요청 안에서는 이미 만든 TokenInfo(검증 결과 포함)를 재사용
+        Object cached = webRequest.getAttribute(TOKEN_INFO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached != null) return cached;
+
+        TokenInfo tokenInfo = new TokenInfo(
+                webRequest.getHeader("X-ACCESS-TOKEN"),
+                webRequest.getHeader("X-REFRESH-TOKEN"));
+        webRequest.setAttribute(TOKEN_INFO_ATTRIBUTE, tokenInfo, RequestAttributes.SCOPE_REQUEST);
+        return tokenInfo;
+    }
+}
@@ -6,7 +6,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.stereotype.Component;
 
@@ -30,8 +29,11 @@ public class EmailConfig {
     @Value("${mail.password}")
     private String password;
 
+    /**
+     * MailDispatcher가 session과 연결 정보를 읽어 SMTP 연결을 직접 관리하므로 구현 타입으로 등록합니다.
+     */
     @Bean
-    public JavaMailSender javaMailService() {
+    public JavaMailSenderImpl javaMailService() {
         JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
         javaMailSender.setHost("smtp.gmail.com");
         javaMailSender.setUsername(id);
@@ -1,38 +1,227 @@
 package com.cocotalk.auth.config;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.*;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.StringRedisTemplate;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * redis 연결 설정
+ *
+ * spring.redis.mode : standalone, sentinel, cluster (기본값 standalone)
+ * spring.redis.sentinel.master, spring.redis.sentinel.nodes : sentinel 모드의 master 이름과 sentinel 목록 (host:port,host:port)
+ * spring.redis.cluster.nodes, spring.redis.cluster.max-redirects : cluster 모드의 seed node 목록과 최대 redirect 횟수
+ * spring.redis.read-from : replica 읽기용 template(replicaRedisTemplate)의 ReadFrom (replicaPreferred, replica, nearest 등)
+ *                          설정하지 않으면 replicaRedisTemplate도 master에서 읽습니다.
+ * spring.redis.timeout, spring.redis.connect-timeout : 명령, 연결 timeout (ms)
+ *   redis가 느려질 때 요청 thread가 오래 묶이지 않도록 짧게 유지합니다.
+ * spring.redis.lettuce.pool.* : connection pool 설정 (enabled=false면 하나의 공유 connection 사용)
+ * redis.circuit-breaker.* : RedisService의 redis 명령에 적용하는 circuit breaker 설정
+ *
+ * cluster 모드에서는 한 유저의 세션 key들이 한 slot에 모이도록 redis.key.hash-tag=true 여야 합니다.
+ *
+ */
 @Configuration
 public class RedisConfig {
-    @Value("${spring.redis.host}")
-    private String redisHost;
-    @Value("${spring.redis.port}")
-    private String redisPort;
-    @Value("${spring.redis.password}")
-    private String redisPassword;
+    static final String MODE_STANDALONE = "standalone";
+    static final String MODE_SENTINEL = "sentinel";
+    static final String MODE_CLUSTER = "cluster";
+
+    @Value("${spring.redis.mode:standalone}")
+    String mode;
+    @Value("${spring.redis.host:localhost}")
+    String redisHost;
+    @Value("${spring.redis.port:6379}")
+    int redisPort;
+    @Value("${spring.redis.password:}")
+    String redisPassword;
+    @Value("${spring.redis.sentinel.master:}")
+    String sentinelMaster;
+    @Value("${spring.redis.sentinel.nodes:}")
+    String sentinelNodes;
+    @Value("${spring.redis.cluster.nodes:}")
+    String clusterNodes;
+    @Value("${spring.redis.cluster.max-redirects:3}")
+    int maxRedirects;
+    @Value("${spring.redis.cluster.topology-refresh:30}")
+    long topologyRefresh; // cluster topology 주기적 갱신 간격 (초)
+    @Value("${spring.redis.read-from:}")
+    String readFrom;
+    @Value("${spring.redis.timeout:500}")
+    long commandTimeout;
+    @Value("${spring.redis.connect-timeout:1000}")
+    long connectTimeout;
+    @Value("${spring.redis.lettuce.pool.enabled:true}")
+    boolean poolEnabled;
+    @Value("${spring.redis.lettuce.pool.max-active:16}")
+    int poolMaxActive;
+    @Value("${spring.redis.lettuce.pool.max-idle:16}")
+    int poolMaxIdle;
+    @Value("${spring.redis.lettuce.pool.min-idle:2}")
+    int poolMinIdle;
+    @Value("${spring.redis.lettuce.pool.max-wait:500}")
+    long poolMaxWait;
+    @Value("${redis.key.hash-tag:false}")
+    boolean hashTag;
+    @Value("${redis.circuit-breaker.failure-rate-threshold:50}")
+    float failureRateThreshold;
+    @Value("${redis.circuit-breaker.slow-call-duration:250}")
+    long slowCallDuration;
+    @Value("${redis.circuit-breaker.slow-call-rate-threshold:80}")
+    float slowCallRateThreshold;
+    @Value("${redis.circuit-breaker.sliding-window-size:50}")
+    int slidingWindowSize;
+    @Value("${redis.circuit-breaker.minimum-number-of-calls:20}")
+    int minimumNumberOfCalls;
+    @Value("${redis.circuit-breaker.wait-duration-in-open-state:10}")
+    long waitDurationInOpenState;
+
     @Bean
+    @Primary
     public RedisConnectionFactory redisConnectionFactory() {
-        RedisStandaloneConfiguration redisStandaloneConfiguration = new RedisStandaloneConfiguration();
-        redisStandaloneConfiguration.setHostName(redisHost);
-        redisStandaloneConfiguration.setPort(Integer.parseInt(redisPort));
-        redisStandaloneConfiguration.setPassword(redisPassword);
-        LettuceConnectionFactory lettuceConnectionFactory = new LettuceConnectionFactory(redisStandaloneConfiguration);
-        return lettuceConnectionFactory;
+        return connectionFactory(null);
     }
+
+    /**
+     * spring.redis.read-from 이 설정된 경우에만 만드는 replica 읽기용 connection factory
+     * 쓰기 명령과 script는 ReadFrom과 상관없이 master로 전달됩니다.
+     */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate() {
-        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
-        redisTemplate.setConnectionFactory(redisConnectionFactory());
-        redisTemplate.setKeySerializer(new StringRedisSerializer());
-        redisTemplate.setValueSerializer(new StringRedisSerializer());
-        return redisTemplate;
+    @ConditionalOnProperty(name = "spring.redis.read-from")
+    public RedisConnectionFactory replicaRedisConnectionFactory() {
+        return connectionFactory(ReadFrom.valueOf(readFrom));
+    }
+
+    @Bean
+    @Primary
+    public StringRedisTemplate stringRedisTemplate() {
+        return new StringRedisTemplate(redisConnectionFactory());
+    }
+
+    /**
+     * replica에서 읽어도 되는(잠깐 이전 값을 읽어도 괜찮은) 조회에 사용하는 template
+     */
+    @Bean
+    public StringRedisTemplate replicaRedisTemplate(
+            @Qualifier("replicaRedisConnectionFactory") ObjectProvider<RedisConnectionFactory> replicaRedisConnectionFactory) {
+        return new StringRedisTemplate(replicaRedisConnectionFactory.getIfAvailable(this::redisConnectionFactory));
+    }
+
+    /**
+     * redis 명령의 실패/지연 비율이 기준을 넘으면 열리는 circuit breaker
+     * 열려 있는 동안(degraded mode)에는 redis를 기다리지 않고 바로 실패시키고,
+     * wait-duration-in-open-state 후 일부 요청으로 회복 여부를 확인합니다.
+     */
+    @Bean
+    public CircuitBreaker redisCircuitBreaker(MeterRegistry meterRegistry) {
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDuration))
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(Duration.ofSeconds(waitDurationInOpenState))
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .build();
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        return circuitBreakerRegistry.circuitBreaker("redis");
+    }
+
+    LettuceConnectionFactory connectionFactory(ReadFrom readFrom) {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder = poolEnabled
+                ? LettucePoolingClientConfiguration.builder().poolConfig(poolConfig())
+                : LettuceClientConfiguration.builder();
+        builder.commandTimeout(Duration.ofMillis(commandTimeout))
+                .clientOptions(clientOptions());
+        if (readFrom != null) builder.readFrom(readFrom);
+        return new LettuceConnectionFactory(redisConfiguration(), builder.build());
+    }
+
+    RedisConfiguration redisConfiguration() {
+        switch (mode) {
+            case MODE_STANDALONE:
+                RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration(redisHost, redisPort);
+                standalone.setPassword(redisPassword);
+                return standalone;
+            case MODE_SENTINEL:
+                RedisSentinelConfiguration sentinel = new RedisSentinelConfiguration(sentinelMaster,
+                        new LinkedHashSet<>(toNodes(sentinelNodes)));
+                sentinel.setPassword(redisPassword);
+                return sentinel;
+            case MODE_CLUSTER:
+                if (!hashTag) {
+                    // 세션 script가 여러 key를 다루므로 key가 서로 다른 slot에 있으면 CROSSSLOT 오류가 납니다.
+                    throw new IllegalStateException("redis.key.hash-tag must be true in cluster mode");
+                }
+                RedisClusterConfiguration cluster = new RedisClusterConfiguration(toNodes(clusterNodes));
+                cluster.setMaxRedirects(maxRedirects);
+                cluster.setPassword(redisPassword);
+                return cluster;
+            default:
+                throw new IllegalStateException("spring.redis.mode must be standalone, sentinel or cluster : " + mode);
+        }
+    }
+
+    private ClientOptions clientOptions() {
+        SocketOptions socketOptions = SocketOptions.builder()
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .keepAlive(true)
+                .build();
+        if (MODE_CLUSTER.equals(mode)) {
+            // node 추가/failover 시 MOVED, ASK 응답이나 주기적 갱신으로 topology를 다시 읽음
+            ClusterTopologyRefreshOptions topologyRefreshOptions = ClusterTopologyRefreshOptions.builder()
+                    .enablePeriodicRefresh(Duration.ofSeconds(topologyRefresh))
+                    .enableAllAdaptiveRefreshTriggers()
+                    .build();
+            return ClusterClientOptions.builder()
+                    .socketOptions(socketOptions)
+                    .topologyRefreshOptions(topologyRefreshOptions)
+                    .build();
+        }
+        return ClientOptions.builder().socketOptions(socketOptions).build();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private GenericObjectPoolConfig poolConfig() {
+        GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+        poolConfig.setMaxTotal(poolMaxActive);
+        poolConfig.setMaxIdle(poolMaxIdle);
+        poolConfig.setMinIdle(poolMinIdle);
+        poolConfig.setMaxWait(Duration.ofMillis(poolMaxWait));
+        return poolConfig;
+    }
+
+    private static List<String> toNodes(String nodes) {
+        return Arrays.stream(nodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,116 @@
+package com.cocotalk.auth.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * gateway를 거쳐 push, chat 서버를 호출하는 WebClient 설정
+ * 두 WebClient는 하나의 connection pool을 공유하고, 서버별로 timeout과 재시도 정책을 따로 둡니다.
+ * connection pool metric(reactor.netty.connection.provider.*)은 Prometheus registry로 내보냅니다.
+ *
+ * downstream.pool.* : connection pool 설정
+ * downstream.connect-timeout : 연결 timeout (ms)
+ * downstream.{push,chat}.response-timeout : 응답 timeout (ms)
+ * downstream.{push,chat}.retry.max-attempts, backoff : 연결 실패, 5xx 응답의 재시도 횟수와 첫 대기시간 (ms)
+ *
+ */
+@Configuration
+public class WebClientConfig {
+
+    @Value("${api.gateway}")
+    private String gatewayAPI;
+    @Value("${downstream.pool.max-connections:200}")
+    private int maxConnections;
+    @Value("${downstream.pool.pending-acquire-timeout:1000}")
+    private long pendingAcquireTimeout;
+    @Value("${downstream.pool.max-idle-time:30000}")
+    private long maxIdleTime;
+    @Value("${downstream.pool.max-life-time:300000}")
+    private long maxLifeTime;
+    @Value("${downstream.connect-timeout:1000}")
+    private int connectTimeout;
+    @Value("${downstream.push.response-timeout:2000}")
+    private long pushResponseTimeout;
+    @Value("${downstream.push.retry.max-attempts:2}")
+    private long pushMaxAttempts;
+    @Value("${downstream.push.retry.backoff:100}")
+    private long pushBackoff;
+    @Value("${downstream.chat.response-timeout:2000}")
+    private long chatResponseTimeout;
+    @Value("${downstream.chat.retry.max-attempts:2}")
+    private long chatMaxAttempts;
+    @Value("${downstream.chat.retry.backoff:100}")
+    private long chatBackoff;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider downstreamConnectionProvider() {
+        return ConnectionProvider.builder("downstream")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeout))
+                .maxIdleTime(Duration.ofMillis(maxIdleTime)) // gateway의 idle timeout보다 짧게 유지
+                .maxLifeTime(Duration.ofMillis(maxLifeTime))
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient pushWebClient(ConnectionProvider downstreamConnectionProvider) {
+        return webClient(downstreamConnectionProvider, "/push", pushResponseTimeout);
+    }
+
+    @Bean
+    public WebClient chatWebClient(ConnectionProvider downstreamConnectionProvider) {
+        return webClient(downstreamConnectionProvider, "/chat", chatResponseTimeout);
+    }
+
+    @Bean
+    public RetryBackoffSpec pushRetry() {
+        return retry(pushMaxAttempts, pushBackoff);
+    }
+
+    @Bean
+    public RetryBackoffSpec chatRetry() {
+        return retry(chatMaxAttempts, chatBackoff);
+    }
+
+    private WebClient webClient(ConnectionProvider connectionProvider, String path, long responseTimeout) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofMillis(responseTimeout))
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new WriteTimeoutHandler(responseTimeout, TimeUnit.MILLISECONDS)));
+        return WebClient.builder()
+                .baseUrl(gatewayAPI + path)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * 연결 실패와 5xx 응답만 재시도합니다. (4xx는 다시 보내도 같은 결과)
+     */
+    private static RetryBackoffSpec retry(long maxAttempts, long backoff) {
+        return Retry.backoff(maxAttempts, Duration.ofMillis(backoff))
+                .jitter(0.5)
+                .filter(throwable -> throwable instanceof WebClientRequestException
+                        || (throwable instanceof WebClientResponseException
+                            && ((WebClientResponseException) throwable).getStatusCode().is5xxServerError()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+}
@@ -1,6 +1,11 @@
 package com.cocotalk.auth.config;
 
 import com.cocotalk.auth.application.ClientArgumentResolver;
+import com.cocotalk.auth.application.ConcurrencyLimitInterceptor;
+import com.cocotalk.auth.application.RateLimitInterceptor;
+import com.cocotalk.auth.application.TokenArgumentResolver;
+import com.cocotalk.auth.service.RateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
@@ -9,11 +14,36 @@ import org.springframework.web.servlet.config.annotation.*;
 import java.util.List;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
+    private final RateLimiter rateLimiter;
+    private final ClientArgumentResolver clientArgumentResolver;
+    private final TokenArgumentResolver tokenArgumentResolver;
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+    private final ObjectMapper objectMapper;
 
     @Override
     public void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
-        argumentResolvers.add(new ClientArgumentResolver());
+        argumentResolvers.add(clientArgumentResolver);
+        argumentResolvers.add(tokenArgumentResolver);
+    }
+
+    /**
+     * client ip별 요청 수 제한 (로그인 아이디, 이메일별 제한은 RateLimitBodyAdvice)
+     * 요청 수 제한을 통과한 요청만 동시 처리 한도를 사용합니다.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, clientArgumentResolver, objectMapper, RateLimiter.SIGNIN_IP))
+                .addPathPatterns("/signin");
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, clientArgumentResolver, objectMapper, RateLimiter.REISSUE_IP))
+                .addPathPatterns("/reissue");
+        // /email/issue의 전체 서버 ip별 제한은 인증코드 발급과 함께 EmailCodeRepository에서 확인 (EI/{ip})
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, clientArgumentResolver, objectMapper, RateLimiter.EMAIL_IP))
+                .addPathPatterns("/email/issue");
+        registry.addInterceptor(concurrencyLimitInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns("/error", "/actuator/**", "/swagger-ui/**", "/swagger-ui.html", "/v3/api-docs/**", "/webjars/**");
     }
 
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
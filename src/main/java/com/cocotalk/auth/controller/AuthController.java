@@ -2,6 +2,7 @@ package com.cocotalk.auth.controller;
 
 import com.cocotalk.auth.dto.common.ClientInfo;
 import com.cocotalk.auth.dto.common.TokenDto;
+import com.cocotalk.auth.dto.common.TokenInfo;
 import com.cocotalk.auth.dto.email.issue.IssueInput;
 import com.cocotalk.auth.dto.signup.SignupInput;
 import com.cocotalk.auth.service.AuthService;
@@ -11,7 +12,10 @@ import com.cocotalk.auth.dto.common.ValidationDto;
 import com.cocotalk.auth.dto.signin.SigninInput;
 import com.cocotalk.auth.dto.signup.SignupOutput;
 import com.cocotalk.auth.dto.common.response.Response;
+import com.cocotalk.auth.dto.token.introspect.IntrospectInput;
+import com.cocotalk.auth.dto.token.introspect.IntrospectOutput;
 import com.cocotalk.auth.service.S3Service;
+import com.cocotalk.auth.service.TokenIntrospectionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -28,10 +32,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.validation.Valid;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 인증에 필요한 API
  * clientInfo는 ClientArgumentResolver를 통해 자동으로 들어옴
+ * tokenInfo는 TokenArgumentResolver를 통해 자동으로 들어옴
  */
 @Tag(name = "인증 API")
 @RestController
@@ -40,6 +47,7 @@ import java.io.IOException;
 public class AuthController {
 
     private final AuthService authService;
+    private final TokenIntrospectionService tokenIntrospectionService;
 
     /**
      * 로그인 API [POST] /signin
@@ -58,11 +66,12 @@ public class AuthController {
      * 로그아웃 API [GET] /signout
      *
      * @param clientInfo 요청자의 client 정보 ( MOBILE/WEB을 별도로 관리하기 위해 필요 )
+     * @param tokenInfo 요청 header의 token 정보
      */
     @Operation(summary = "로그아웃")
     @GetMapping("/signout")
-    public ResponseEntity<Response<Object>> signout(ClientInfo clientInfo) {
-        return authService.signout(clientInfo);
+    public ResponseEntity<Response<Object>> signout(ClientInfo clientInfo, @Parameter(hidden = true) TokenInfo tokenInfo) {
+        return authService.signout(clientInfo, tokenInfo);
     }
 
     /**
@@ -83,26 +92,28 @@ public class AuthController {
      * ACCESS TOKEN 재발급 API [GET] /reissue
      *
      * @param clientInfo 요청자의 client 정보 ( MOBILE/WEB을 별도로 관리하기 위해 필요 )
+     * @param tokenInfo 요청 header의 token 정보
      * @return 발급된 accesstoken과 refreshtoken
      */
     @Operation(summary = "ACCESS TOKEN 재발급")
     @GetMapping("/reissue")
-    public ResponseEntity<Response<TokenDto>> reissue(ClientInfo clientInfo) {
+    public ResponseEntity<Response<TokenDto>> reissue(ClientInfo clientInfo, @Parameter(hidden = true) TokenInfo tokenInfo) {
         log.info("[GET] /api/users/reissue");
-        return authService.reissue(clientInfo);
+        return authService.reissue(clientInfo, tokenInfo);
     }
 
     /**
      * 이메일 인증 코드 보내기 API [POST] /email/issue
      *
+     * @param clientInfo 요청자의 client 정보 ( ip별 발급 제한에 사용 )
      * @param emailInput 인증 코드를 보낼 이메일 정보
      * @return 전송한 인증코드의 만료시간이 담긴 모델
      */
     @Operation(summary = "Eamil 인증 코드 발송")
     @PostMapping("/email/issue")
-    public ResponseEntity<Response<IssueOutput>> sendMail(@RequestBody @Valid IssueInput emailInput) {
+    public ResponseEntity<Response<IssueOutput>> sendMail(@Parameter(hidden = true) ClientInfo clientInfo, @RequestBody @Valid IssueInput emailInput) {
         log.info("[POST] /users/email");
-        return authService.sendMail(emailInput);
+        return authService.sendMail(clientInfo, emailInput);
     }
 
     /**
@@ -120,17 +131,43 @@ public class AuthController {
 
     /**
      * 마지막으로 로그인한 기기 검증 API [GET] /device
-     * request의 accesstoken 속 fcmtoken과 redis에 보관된 마지막 접속자의 refreshtoken속 fcmtoken을 비교
+     * request의 accesstoken 속 fcmtoken과 redis에 보관된 마지막 접속자의 기기 fingerprint를 비교
      *
      * @param clientInfo 요청자의 client 정보 ( MOBILE/WEB을 별도로 관리하기 위해 필요 )
+     * @param tokenInfo 요청 header의 token 정보
      * @return 마지막으로 로그인힌 기기가 맞는지에 대한 결과
      */
     @Operation(summary = "마지막으로 로그인한 기기가 맞는지 체크")
     @GetMapping("/device")
     @SecurityRequirement(name = "X-ACCESS-TOKEN")
-    public ResponseEntity<Response<ValidationDto>>checkLastly(ClientInfo clientInfo) {
+    public ResponseEntity<Response<ValidationDto>>checkLastly(ClientInfo clientInfo, @Parameter(hidden = true) TokenInfo tokenInfo) {
         log.info("[GET] /device");
-        return authService.checkLastly(clientInfo);
+        return authService.checkLastly(clientInfo, tokenInfo);
+    }
+
+    /**
+     * token 검증용 공개키 조회 API [GET] /.well-known/jwks.json
+     * gateway, chat, push 서버가 auth 서버 호출 없이 token을 직접 검증할 때 사용
+     *
+     * @return JWK Set
+     */
+    @Operation(summary = "token 검증용 공개키(JWK Set) 조회")
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return authService.getJwks();
+    }
+
+    /**
+     * token 일괄 검증 API [POST] /tokens/introspect
+     * gateway가 여러 token을 한 번의 요청으로 검증할 때 사용
+     *
+     * @param introspectInput 검증할 token 목록
+     * @return 요청 순서대로 token별 유효 여부, userId, 기기 정보
+     */
+    @Operation(summary = "token 일괄 검증")
+    @PostMapping("/tokens/introspect")
+    public ResponseEntity<Response<List<IntrospectOutput>>> introspect(@RequestBody @Valid IntrospectInput introspectInput) {
+        return tokenIntrospectionService.introspect(introspectInput);
     }
 
 }
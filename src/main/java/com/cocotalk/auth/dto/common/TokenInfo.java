@@ -0,0 +1,58 @@
+package com.cocotalk.auth.dto.common;
+
+import com.cocotalk.auth.dto.common.payload.TokenPayload;
+import com.cocotalk.auth.utils.JwtUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * 요청 header의 X-ACCESS-TOKEN, X-REFRESH-TOKEN 정보
+ * TokenArgumentResolver를 통해 요청당 하나만 만들어지며,
+ * 각 token의 서명 검증과 payload 파싱은 처음 접근할 때 한 번만 수행됩니다.
+ * 검증에 실패한 token의 payload는 null 입니다.
+ *
+ */
+@Slf4j
+public class TokenInfo {
+    @Getter
+    private final String accessToken;
+    @Getter
+    private final String refreshToken;
+
+    private TokenPayload accessPayload;
+    private TokenPayload refreshPayload;
+    private boolean accessVerified;
+    private boolean refreshVerified;
+
+    public TokenInfo(String accessToken, String refreshToken) {
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+    }
+
+    public TokenPayload getAccessPayload() {
+        if (!accessVerified) {
+            accessPayload = verify(accessToken);
+            accessVerified = true;
+        }
+        return accessPayload;
+    }
+
+    public TokenPayload getRefreshPayload() {
+        if (!refreshVerified) {
+            refreshPayload = verify(refreshToken);
+            refreshVerified = true;
+        }
+        return refreshPayload;
+    }
+
+    private static TokenPayload verify(String token) {
+        if (token == null) return null;
+        try {
+            return JwtUtils.getPayload(token);
+        } catch (Exception e) {
+            log.info("[TokenInfo/verify] invalid token : " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.cocotalk.auth.dto.common.payload;
+
+import com.cocotalk.auth.utils.JwtUtils;
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ *
+ * redis에 refresh token 대신 저장하는 고정 길이 세션 기록
+ * token 원문 대신 token id(jti), token digest, 기기(FCM Token) fingerprint, 발급 시각,
+ * 직전 refresh token의 digest(재사용 감지용)만 보관합니다.
+ *
+ * 저장 형식 : v1:{tokenId}:{digest}:{device}:{issuedAt}:{previousDigest}
+ *
+ */
+@Builder
+@Getter
+@AllArgsConstructor
+public class RefreshTokenRecord {
+    private static final String VERSION = "v1";
+    private static final String DELIMITER = ":";
+
+    private String tokenId;
+    private String digest;
+    private String device;
+    private long issuedAt; // epoch seconds
+    private String previousDigest; // 이 token으로 교체된 직전 refresh token의 digest (없으면 빈 문자열)
+
+    /**
+     * 발급한 refresh token으로 세션 기록을 만듭니다.
+     *
+     * @param refreshToken 발급한 refresh token
+     * @param payload refresh token의 payload
+     * @return 세션 기록
+     */
+    public static RefreshTokenRecord of(String refreshToken, TokenPayload payload) {
+        return of(refreshToken, payload, null);
+    }
+
+    /**
+     * 재발급한 refresh token으로 세션 기록을 만듭니다.
+     *
+     * @param refreshToken 재발급한 refresh token
+     * @param payload 재발급한 refresh token의 payload
+     * @param previousToken 재발급 요청에 사용된 직전 refresh token
+     * @return 세션 기록
+     */
+    public static RefreshTokenRecord of(String refreshToken, TokenPayload payload, String previousToken) {
+        return RefreshTokenRecord.builder()
+                .tokenId(payload.getTokenId() == null ? "" : payload.getTokenId())
+                .digest(JwtUtils.digest(refreshToken))
+                .device(fingerprint(payload.getFcmToken()))
+                .issuedAt(payload.getIssuedAt() == null ? 0 : payload.getIssuedAt().getTime() / 1000)
+                .previousDigest(previousToken == null ? "" : JwtUtils.digest(previousToken))
+                .build();
+    }
+
+    /**
+     * 기기(FCM Token)의 fingerprint
+     *
+     * @param fcmToken 기기의 FCM Token
+     * @return fingerprint
+     */
+    public static String fingerprint(String fcmToken) {
+        return JwtUtils.digest(fcmToken == null ? "" : fcmToken);
+    }
+
+    /**
+     * 요청 refresh token이 기록된 token과 같은지 상수 시간으로 비교합니다.
+     */
+    public boolean matches(String refreshToken) {
+        return constantTimeEquals(digest, JwtUtils.digest(refreshToken));
+    }
+
+    /**
+     * 요청 기기가 기록된 기기(마지막 로그인 기기)와 같은지 상수 시간으로 비교합니다.
+     */
+    public boolean isDevice(String fcmToken) {
+        return constantTimeEquals(device, fingerprint(fcmToken));
+    }
+
+    public String toValue() {
+        return String.join(DELIMITER, VERSION, tokenId, digest, device, String.valueOf(issuedAt), previousDigest);
+    }
+
+    /**
+     * 저장 형식의 문자열을 세션 기록으로 변환합니다.
+     *
+     * @param value redis에 저장된 값
+     * @return 세션 기록, 세션 기록 형식이 아니면 (이전 방식으로 저장된 refresh token 원문) null
+     */
+    public static RefreshTokenRecord fromValue(String value) {
+        if (!isRecord(value)) return null;
+        String[] fields = value.split(DELIMITER, -1);
+        if (fields.length < 5) return null;
+        return RefreshTokenRecord.builder()
+                .tokenId(fields[1])
+                .digest(fields[2])
+                .device(fields[3])
+                .issuedAt(Long.parseLong(fields[4]))
+                .previousDigest(fields.length > 5 ? fields[5] : "")
+                .build();
+    }
+
+    public static boolean isRecord(String value) {
+        return value != null && value.startsWith(VERSION + DELIMITER);
+    }
+
+    private static boolean constantTimeEquals(String a, String b) {
+        if (a == null || b == null) return false;
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.US_ASCII), b.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -1,8 +1,10 @@
 package com.cocotalk.auth.dto.common.payload;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import javax.validation.constraints.NotBlank;
+import java.util.Date;
 
 /**
  *
@@ -17,4 +19,13 @@ import javax.validation.constraints.NotBlank;
 public class TokenPayload {
     private Long userId;
     private String fcmToken;
+    /*
+     아래 값은 token의 표준 claim에서 채워지며, token 안에 JSON으로 들어가지 않음
+     */
+    @JsonIgnore
+    private String tokenId; // jti (refresh token에만 존재)
+    @JsonIgnore
+    private Date issuedAt;
+    @JsonIgnore
+    private Date expiration;
 }
@@ -36,7 +36,10 @@ public enum ResponseStatus {
     SERVER_ERROR(2011, "서버와의 통신에 실패하였습니다."),
     INTERNAL_SERVER_ERROR( 2012, "서버 내부에서 에러가 발생하였습니다."),
     DATABASE_ERROR( 2013, "데이터베이스 연결에 실패하였습니다."),
-    PARSE_ERROR( 2014, "파싱 과정 중 에러가 발생했습니다.");
+    PARSE_ERROR( 2014, "파싱 과정 중 에러가 발생했습니다."),
+    SERVER_BUSY( 2015, "요청이 많아 처리하지 못했습니다. 잠시 후 다시 시도해주세요."),
+    TOO_MANY_REQUESTS( 2016, "요청 횟수를 초과했습니다. 잠시 후 다시 시도해주세요."),
+    OVERLOADED( 2017, "서버가 혼잡해 요청을 처리하지 못했습니다. 잠시 후 다시 시도해주세요.");
 
     private final Integer code;
     private final String message;
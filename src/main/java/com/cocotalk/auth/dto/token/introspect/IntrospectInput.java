@@ -0,0 +1,22 @@
+package com.cocotalk.auth.dto.token.introspect;
+
+import lombok.*;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Getter
+@Setter
+public class IntrospectInput {
+    public static final int MAX_TOKENS = 100;
+
+    @NotEmpty
+    @Size(max = MAX_TOKENS)
+    private List<@NotBlank String> tokens;
+}
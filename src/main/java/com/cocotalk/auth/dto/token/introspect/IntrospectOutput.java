@@ -0,0 +1,27 @@
+package com.cocotalk.auth.dto.token.introspect;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ *
+ * token 하나에 대한 검증 결과
+ * 유효하지 않은 token은 active만 false로 내려갑니다.
+ *
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IntrospectOutput {
+    private Boolean active;
+    private Long userId;
+    private String fcmToken;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss", timezone = "Asia/Seoul")
+    private LocalDateTime expirationDate;
+}
@@ -14,8 +14,17 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "user")
+@Table(name = "user", uniqueConstraints = {
+        @UniqueConstraint(name = User.UK_CID, columnNames = "cid"),
+        @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email"),
+        @UniqueConstraint(name = User.UK_PHONE, columnNames = "phone")
+})
 public class User extends BaseTime {
+    // 중복 가입은 unique 제약조건으로 막고, 위반 시 제약조건 이름으로 EXISTS_INFO를 응답합니다.
+    public static final String UK_CID = "uk_user_cid";
+    public static final String UK_EMAIL = "uk_user_email";
+    public static final String UK_PHONE = "uk_user_phone";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name="id")
@@ -26,8 +35,8 @@ public class User extends BaseTime {
     private String cid; // 코코톡 아이디
 
     @NotNull
-    @Column(length = 64)
-    private String password;
+    @Column(length = 128)
+    private String password; // PasswordService의 hash 문자열
 
     @NotNull
     @Column(length = 20)
@@ -37,11 +46,11 @@ public class User extends BaseTime {
     @Column(length = 20)
     private String nickname;
 
-    @Column(length = 125, unique = true)
+    @Column(length = 125)
     private String email;
 
     @NotNull
-    @Column(length = 20, unique = true)
+    @Column(length = 20)
     private String phone;
 
     private String profile; // JSON 형태로 저장
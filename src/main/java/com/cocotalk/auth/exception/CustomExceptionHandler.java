@@ -17,6 +17,11 @@ public class CustomExceptionHandler {
     @ExceptionHandler(CustomException.class)
     public ResponseEntity<Response<?>> serverException(CustomException e) {
         ResponseStatus status = e.getStatus();
+        if (status == ResponseStatus.TOO_MANY_REQUESTS || status == ResponseStatus.EXISTS_INFO) {
+            // 요청 수 제한과 중복 가입은 정상적인 거절이고 많이 발생할 수 있으므로 stack trace를 남기지 않음
+            log.warn("AuthException : " + status.getMessage());
+            return ResponseEntity.status(HttpStatus.OK).body(new Response<>(status));
+        }
         log.error("AuthException : " + status.getMessage());
         e.printStackTrace();
         return ResponseEntity.status(HttpStatus.OK).body(new Response<>(status));
@@ -0,0 +1,12 @@
+package com.cocotalk.auth.repository;
+
+/**
+ *
+ * 로그인 검증에 필요한 컬럼만 조회하는 projection
+ * entity가 아니므로 persistence context에 올라가지 않고, profile 등 다른 컬럼은 읽지 않습니다.
+ *
+ */
+public interface UserCredential {
+    Long getId();
+    String getPassword(); // PasswordService의 hash 문자열
+}
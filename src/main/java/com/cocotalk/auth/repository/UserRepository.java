@@ -1,15 +1,41 @@
 package com.cocotalk.auth.repository;
 
 import com.cocotalk.auth.entity.User;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends CrudRepository<User, Long> {
     Optional<User> findByCid(String cid);
+
+    /**
+     * 로그인 검증용 조회 (id, password 컬럼만, uk_user_cid index 사용)
+     */
+    Optional<UserCredential> findCredentialByCid(String cid);
+
+    /**
+     * entity를 읽지 않고 비밀번호 hash만 갱신합니다.
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
     Optional<User> findByEmail(String email);
-    boolean existsByCid(String cid);
-    boolean existsByEmail(String email);
-    boolean existsByPhone(String phone);
 
+    /**
+     * 아이디, 이메일, 전화번호의 unique 제약조건 위반인지 확인합니다.
+     * DB마다 제약조건 이름을 알려주는 방식이 달라 오류 메시지에 이름이 포함되어 있는지로 판단합니다.
+     */
+    static boolean isDuplicateUser(DataIntegrityViolationException e) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        return Stream.of(User.UK_CID, User.UK_EMAIL, User.UK_PHONE).anyMatch(message::contains);
+    }
 }
@@ -0,0 +1,174 @@
+package com.cocotalk.auth.repository.email;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ *
+ * 이메일 인증 상태 저장소
+ * 이메일마다 hash 하나에 인증 상태를 저장하고, 발급과 검증은 각각 redis script 한 번으로 처리합니다.
+ *
+ * EV/{email} hash field
+ *   d : 인증코드 digest (검증에 성공하면 삭제)
+ *   x : 인증코드 만료 시각 (epoch seconds)
+ *   a : 현재 코드의 검증 실패 횟수
+ *   n : 발급 window 안에서 발급한 횟수
+ *   w : 발급 window 시작 시각 (epoch seconds)
+ * EI/{ip} : ip별 발급 요청 수 (ip-window 동안 유지)
+ *
+ * mail.limit.email, mail.limit.email-window : 이메일별 최대 발급 횟수와 window (초)
+ * mail.limit.ip, mail.limit.ip-window : ip별 최대 발급 요청 수와 window (초), 0이면 제한하지 않음
+ * mail.limit.attempts : 코드 하나에 허용하는 검증 실패 횟수
+ *
+ * cluster 모드(redis.key.hash-tag=true)에서는 두 key가 다른 slot에 있을 수 있어 ip 제한을 별도 script로 먼저 확인합니다.
+ *
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmailCodeRepository {
+    public static final long ISSUED = 0;
+    public static final long EMAIL_LIMITED = 1;
+    public static final long IP_LIMITED = 2;
+
+    public static final long NOT_FOUND = 0;
+    public static final long VALID = 1;
+    public static final long MISMATCH = 2;
+    public static final long LOCKED = 3;
+
+    // ip key, ARGV[6] 최대 요청 수, ARGV[7] window
+    private static final String COUNT_IP =
+            "local c = redis.call('INCR', ipKey) " +
+            "if c == 1 then redis.call('EXPIRE', ipKey, ARGV[7]) end " +
+            "if c > tonumber(ARGV[6]) then return 2 end ";
+
+    private static final RedisScript<Long> IP_SCRIPT = new DefaultRedisScript<>(
+            "local ipKey = KEYS[1] " +
+            COUNT_IP +
+            "return 0", Long.class);
+
+    // ARGV[8] 1이면 이미 발급한 코드를 기록 (발급 제한을 확인하지 않고, 더 최근에 발급된 코드가 있으면 기록하지 않음)
+    // ARGV[9] 검증 실패 횟수, ARGV[10] 발급 횟수에 더할 값, ARGV[11] 기록할 코드의 만료 시각 (restore)
+    private static final RedisScript<Long> ISSUE_SCRIPT = new DefaultRedisScript<>(
+            "if #KEYS > 1 then " +
+            "  local ipKey = KEYS[2] " +
+            "  " + COUNT_IP +
+            "end " +
+            "local now = tonumber(ARGV[1]) " +
+            "local window = tonumber(ARGV[5]) " +
+            "local restore = ARGV[8] == '1' " +
+            "local ttl = tonumber(ARGV[3]) " +
+            "local v = redis.call('HMGET', KEYS[1], 'n', 'w', 'x') " +
+            "if restore and v[3] and tonumber(v[3]) > tonumber(ARGV[11]) then return 0 end " +
+            "local n = 0 " +
+            "local w = now " +
+            "if v[2] and now - tonumber(v[2]) < window then " +
+            "  n = tonumber(v[1]) " +
+            "  w = tonumber(v[2]) " +
+            "end " +
+            "if not restore and n >= tonumber(ARGV[4]) then return 1 end " +
+            "redis.call('HMSET', KEYS[1], 'd', ARGV[2], 'x', now + ttl, 'a', ARGV[9], 'n', n + tonumber(ARGV[10]), 'w', w) " +
+            "redis.call('EXPIRE', KEYS[1], math.max(ttl, w + window - now)) " +
+            "return 0", Long.class);
+
+    private static final RedisScript<Long> CONSUME_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('HMGET', KEYS[1], 'd', 'x', 'a') " +
+            "if not v[1] or tonumber(v[2]) <= tonumber(ARGV[1]) then return 0 end " +
+            "if tonumber(v[3]) >= tonumber(ARGV[3]) then return 3 end " +
+            "if v[1] == ARGV[2] then " +
+            "  redis.call('HDEL', KEYS[1], 'd', 'x', 'a') " +
+            "  return 1 " +
+            "end " +
+            "redis.call('HINCRBY', KEYS[1], 'a', 1) " +
+            "return 2", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${mail.limit.email:5}")
+    long emailLimit;
+    @Value("${mail.limit.email-window:3600}")
+    long emailWindow;
+    @Value("${mail.limit.ip:30}")
+    long ipLimit;
+    @Value("${mail.limit.ip-window:3600}")
+    long ipWindow;
+    @Value("${mail.limit.attempts:5}")
+    long attemptLimit;
+    @Value("${redis.key.hash-tag:false}")
+    boolean hashTag;
+
+    /**
+     * ip와 이메일의 발급 제한을 확인하고, 제한 안이면 새 인증코드를 기록합니다.
+     * 새 코드를 기록하면 이전 코드와 검증 실패 횟수는 초기화됩니다.
+     *
+     * @param email 이메일
+     * @param ip 요청자 ip (null이면 ip 제한을 확인하지 않음)
+     * @param codeDigest 인증코드 digest
+     * @param ttl 인증코드 만료시간 (초)
+     * @return ISSUED, EMAIL_LIMITED, IP_LIMITED
+     */
+    public long issue(String email, String ip, String codeDigest, long ttl) {
+        boolean limitIp = ip != null && ipLimit > 0;
+        Object[] args = args(Instant.now().getEpochSecond(), codeDigest, ttl, false, 0, 1);
+        if (limitIp && hashTag) {
+            Long ipResult = stringRedisTemplate.execute(IP_SCRIPT, Collections.singletonList(ipKey(ip)), args);
+            if (ipResult != null && ipResult == IP_LIMITED) return IP_LIMITED;
+            limitIp = false;
+        }
+        Long result = stringRedisTemplate.execute(ISSUE_SCRIPT,
+                limitIp ? Arrays.asList(stateKey(email), ipKey(ip)) : Collections.singletonList(stateKey(email)), args);
+        return result == null ? ISSUED : result;
+    }
+
+    /**
+     * redis 장애 동안 서버에 보관했다가 이미 메일로 보낸 인증코드를 기록합니다.
+     * 이미 발급한 코드이므로 발급 제한으로 거절하지 않고, 그 사이 더 최근에 발급된 코드가 있으면 기록하지 않습니다.
+     *
+     * @param email 이메일
+     * @param codeDigest 인증코드 digest
+     * @param expiresAt 인증코드 만료 시각 (epoch seconds)
+     * @param attempts 보관하는 동안의 검증 실패 횟수
+     * @param issues 보관하는 동안 발급한 횟수
+     */
+    public void restore(String email, String codeDigest, long expiresAt, int attempts, int issues) {
+        long now = Instant.now().getEpochSecond();
+        if (expiresAt <= now) return;
+        stringRedisTemplate.execute(ISSUE_SCRIPT, Collections.singletonList(stateKey(email)),
+                args(now, codeDigest, expiresAt - now, true, attempts, issues));
+    }
+
+    private Object[] args(long now, String codeDigest, long ttl, boolean restore, int attempts, int issues) {
+        return new Object[]{String.valueOf(now), codeDigest, String.valueOf(ttl),
+                String.valueOf(emailLimit), String.valueOf(emailWindow), String.valueOf(ipLimit), String.valueOf(ipWindow),
+                restore ? "1" : "0", String.valueOf(attempts), String.valueOf(issues), String.valueOf(now + ttl)};
+    }
+
+    /**
+     * 인증코드를 검증하고, 일치하면 삭제합니다. (한 코드는 한 번만 성공)
+     * 일치하지 않으면 실패 횟수를 늘리고, attempts 번 실패한 코드는 새로 발급받기 전까지 검증할 수 없습니다.
+     *
+     * @param email 이메일
+     * @param codeDigest 요청한 인증코드의 digest
+     * @return NOT_FOUND, VALID, MISMATCH, LOCKED
+     */
+    public long consume(String email, String codeDigest) {
+        Long result = stringRedisTemplate.execute(CONSUME_SCRIPT, Collections.singletonList(stateKey(email)),
+                String.valueOf(Instant.now().getEpochSecond()), codeDigest, String.valueOf(attemptLimit));
+        return result == null ? NOT_FOUND : result;
+    }
+
+    static String stateKey(String email) {
+        return "EV/" + email;
+    }
+
+    static String ipKey(String ip) {
+        return "EI/" + ip;
+    }
+}
@@ -0,0 +1,282 @@
+package com.cocotalk.auth.repository.session;
+
+import com.cocotalk.auth.dto.common.ClientType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * 유저별 hash 하나에 모든 기기타입의 세션 기록을 저장하는 저장소 (redis.session.layout=hash)
+ * 유저마다 top-level key가 하나라서 key별 overhead가 줄어들고, 한 유저의 세션은 한 번의 명령으로 조회/변경됩니다.
+ *
+ * S/{userId} hash field
+ *   RT:{clientType} : 세션 기록
+ *   EX:{clientType} : 세션 기록 만료 시각 (epoch seconds)
+ *   RR:{clientType} : 재발급 결과 (grace 동안 보관)
+ *   RX:{clientType} : 재발급 결과 만료 시각 (epoch seconds)
+ *   updated : 마지막 변경 시각 (epoch seconds)
+ *
+ * redis hash는 field별 만료를 지원하지 않으므로 만료 시각 field로 만료를 흉내내고,
+ * key 자체의 만료시간은 가장 늦게 만료되는 field에 맞춥니다.
+ * 아직 string key(RT/{clientType}/{userId})에 남아있는 세션은 조회 시점에 hash로 옮깁니다.
+ * 조회도 script로 처리하므로 spring.redis.read-from 설정과 상관없이 master에서 읽습니다.
+ * 세션(RT:*)이 하나도 남지 않으면 hash를 삭제합니다.
+ * redis.key.hash-tag를 켜기 전에 저장된 key(S/userId, RT/{clientType}/userId)는 새 key에서 세션을 찾지 못했을 때 옮겨 오고,
+ * 세션을 기록/삭제하기 전에는 이전 hash를 먼저 옮겨 다른 기기타입의 세션이 사라지지 않도록 합니다. (redis.key.migrate-untagged)
+ *
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "redis.session.layout", havingValue = "hash")
+public class HashSessionRepository implements SessionRepository {
+
+    private static final String EXTEND_EXPIRE =
+            "if redis.call('TTL', KEYS[1]) < ttl then redis.call('EXPIRE', KEYS[1], ttl) end ";
+
+    // 남은 세션이 없으면 updated 등 나머지 field만 남지 않도록 key 삭제
+    private static final String DELETE_IF_EMPTY =
+            "local alive = false " +
+            "for _, f in ipairs(redis.call('HKEYS', KEYS[1])) do " +
+            "  if string.sub(f, 1, 3) == 'RT:' then alive = true break end " +
+            "end " +
+            "if not alive then redis.call('DEL', KEYS[1]) end ";
+
+    private static final RedisScript<String> GET_SCRIPT = new DefaultRedisScript<>(
+            "local t = ARGV[1] " +
+            "local now = tonumber(ARGV[2]) " +
+            "local v = redis.call('HMGET', KEYS[1], 'RT:' .. t, 'EX:' .. t) " +
+            "if v[1] then " +
+            "  if v[2] and tonumber(v[2]) > now then return v[1] end " +
+            "  redis.call('HDEL', KEYS[1], 'RT:' .. t, 'EX:' .. t) " +
+            "end " +
+            "local legacy = redis.call('GET', KEYS[2]) " +
+            "if not legacy then " +
+            "  if v[1] then " + DELETE_IF_EMPTY + "end " +
+            "  return false " +
+            "end " +
+            "local ttl = redis.call('TTL', KEYS[2]) " +
+            "if ttl < 0 then ttl = tonumber(ARGV[3]) end " +
+            "redis.call('HMSET', KEYS[1], 'RT:' .. t, legacy, 'EX:' .. t, now + ttl) " +
+            EXTEND_EXPIRE +
+            "redis.call('DEL', KEYS[2]) " +
+            "return legacy", String.class);
+
+    // KEYS[1] 유저 hash, KEYS[2..] 기기타입별 이전 string key, ARGV[3..] KEYS[2..]의 기기타입
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> GET_ALL_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+            "local h = redis.call('HGETALL', KEYS[1]) " +
+            "local f = {} " +
+            "for i = 1, #h, 2 do f[h[i]] = h[i + 1] end " +
+            "local result = {} " +
+            "for i = 2, #KEYS do " +
+            "  local t = ARGV[i + 1] " +
+            "  local v = f['RT:' .. t] " +
+            "  if v and not (f['EX:' .. t] and tonumber(f['EX:' .. t]) > now) then v = false end " +
+            "  if not v then " +
+            "    v = redis.call('GET', KEYS[i]) " +
+            "    if v then " +
+            "      local ttl = redis.call('TTL', KEYS[i]) " +
+            "      if ttl < 0 then ttl = tonumber(ARGV[2]) end " +
+            "      redis.call('HMSET', KEYS[1], 'RT:' .. t, v, 'EX:' .. t, now + ttl) " +
+            "      " + EXTEND_EXPIRE +
+            "      redis.call('DEL', KEYS[i]) " +
+            "    end " +
+            "  end " +
+            "  if v then " +
+            "    result[#result + 1] = t " +
+            "    result[#result + 1] = v " +
+            "  end " +
+            "end " +
+            "return result", List.class);
+
+    private static final RedisScript<Long> SET_SCRIPT = new DefaultRedisScript<>(
+            "local t = ARGV[1] " +
+            "local ttl = tonumber(ARGV[3]) " +
+            "local now = tonumber(ARGV[4]) " +
+            "redis.call('HMSET', KEYS[1], 'RT:' .. t, ARGV[2], 'EX:' .. t, now + ttl, 'updated', now) " +
+            EXTEND_EXPIRE +
+            "redis.call('DEL', KEYS[2]) " +
+            "return 1", Long.class);
+
+    private static final RedisScript<Long> REPLACE_SCRIPT = new DefaultRedisScript<>(
+            "local t = ARGV[1] " +
+            "if redis.call('HGET', KEYS[1], 'RT:' .. t) ~= ARGV[2] then return 0 end " +
+            "local ttl = tonumber(ARGV[4]) " +
+            "local now = tonumber(ARGV[5]) " +
+            "redis.call('HMSET', KEYS[1], 'RT:' .. t, ARGV[3], 'EX:' .. t, now + ttl, 'updated', now) " +
+            EXTEND_EXPIRE +
+            "return 1", Long.class);
+
+    private static final RedisScript<Long> DELETE_SCRIPT = new DefaultRedisScript<>(
+            "local t = ARGV[1] " +
+            "redis.call('HDEL', KEYS[1], 'RT:' .. t, 'EX:' .. t, 'RR:' .. t, 'RX:' .. t) " +
+            DELETE_IF_EMPTY +
+            "redis.call('DEL', KEYS[2]) " +
+            "return 1", Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local t = ARGV[1] " +
+            "local now = tonumber(ARGV[7]) " +
+            "local v = redis.call('HMGET', KEYS[1], 'RT:' .. t, 'EX:' .. t, 'RR:' .. t, 'RX:' .. t) " +
+            "local current = v[1] " +
+            "if current and not (v[2] and tonumber(v[2]) > now) then current = false end " +
+            "if not current then " +
+            "  if redis.call('EXISTS', KEYS[2]) == 1 then return {'3'} end " +
+            "  return {'0'} " +
+            "end " +
+            "if string.sub(current, 1, 3) ~= 'v1:' then return {'3'} end " +
+            "local fields = {} " +
+            "for field in string.gmatch(current .. ':', '([^:]*):') do fields[#fields + 1] = field end " +
+            "if fields[3] == ARGV[2] then " +
+            "  local ttl = tonumber(ARGV[4]) " +
+            "  redis.call('HMSET', KEYS[1], 'RT:' .. t, ARGV[3], 'EX:' .. t, now + ttl, " +
+            "    'RR:' .. t, ARGV[5], 'RX:' .. t, now + tonumber(ARGV[6]), 'updated', now) " +
+            "  " + EXTEND_EXPIRE +
+            "  return {'1'} " +
+            "end " +
+            "if fields[6] ~= nil and fields[6] ~= '' and fields[6] == ARGV[2] then " +
+            "  if v[3] and v[4] and tonumber(v[4]) > now then return {'4', v[3]} end " +
+            "  redis.call('HDEL', KEYS[1], 'RT:' .. t, 'EX:' .. t, 'RR:' .. t, 'RX:' .. t) " +
+            "  " + DELETE_IF_EMPTY +
+            "  return {'-1'} " +
+            "end " +
+            "return {'2'}", List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${jwt.token.exp.refresh}")
+    long refreshTokenExp; // 만료시간이 없는 string key를 옮길 때 사용
+    @Value("${redis.key.hash-tag:false}")
+    boolean hashTag;
+    @Value("${redis.key.migrate-untagged:true}")
+    boolean migrateUntagged;
+
+    /**
+     * 세션 기록을 조회합니다. string key에 남아있는 세션이면 hash로 옮긴 뒤 반환합니다.
+     * (SessionLayoutMigrator도 이 메서드로 세션을 옮깁니다.)
+     */
+    @Override
+    public String get(ClientType clientType, long userId) {
+        String value = stringRedisTemplate.execute(GET_SCRIPT, keys(clientType, userId),
+                clientType.toString(), now(), String.valueOf(refreshTokenExp));
+        if (value == null && moveUntagged(userId)) {
+            value = stringRedisTemplate.execute(GET_SCRIPT, keys(clientType, userId),
+                    clientType.toString(), now(), String.valueOf(refreshTokenExp));
+        }
+        return value;
+    }
+
+    /**
+     * 유저 hash를 HGETALL로 한 번에 읽습니다. string key에 남아있는 기기타입의 세션은 같은 script에서 hash로 옮깁니다.
+     */
+    @Override
+    public Map<ClientType, String> getAll(long userId) {
+        Map<ClientType, String> sessions = readAll(userId);
+        if (sessions.size() < ClientType.values().length && moveUntagged(userId)) sessions = readAll(userId);
+        return sessions;
+    }
+
+    private Map<ClientType, String> readAll(long userId) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>(Arrays.asList(now(), String.valueOf(refreshTokenExp)));
+        keys.add(sessionKey(userId, hashTag));
+        for (ClientType clientType : ClientType.values()) {
+            keys.add(StringSessionRepository.refreshTokenKey(clientType, userId, hashTag));
+            args.add(clientType.toString());
+        }
+        List<?> result = stringRedisTemplate.execute(GET_ALL_SCRIPT, keys, args.toArray());
+        Map<ClientType, String> sessions = new EnumMap<>(ClientType.class);
+        if (result == null) return sessions;
+        for (int i = 0; i + 1 < result.size(); i += 2) {
+            sessions.put(ClientType.valueOf(String.valueOf(result.get(i))), String.valueOf(result.get(i + 1)));
+        }
+        return sessions;
+    }
+
+    @Override
+    public void set(ClientType clientType, long userId, String value, long ttl) {
+        moveUntaggedHash(userId);
+        stringRedisTemplate.execute(SET_SCRIPT, keys(clientType, userId),
+                clientType.toString(), value, String.valueOf(ttl), now());
+        deleteUntagged(clientType, userId);
+    }
+
+    @Override
+    public boolean replace(ClientType clientType, long userId, String expected, String value, long ttl) {
+        moveUntaggedHash(userId);
+        Long result = stringRedisTemplate.execute(REPLACE_SCRIPT, keys(clientType, userId),
+                clientType.toString(), expected, value, String.valueOf(ttl), now());
+        return result != null && result == 1;
+    }
+
+    @Override
+    public void delete(ClientType clientType, long userId) {
+        moveUntaggedHash(userId);
+        stringRedisTemplate.execute(DELETE_SCRIPT, keys(clientType, userId), clientType.toString());
+        deleteUntagged(clientType, userId);
+    }
+
+    @Override
+    public List<?> rotate(ClientType clientType, long userId, String digest, String value, long ttl, String issued, long grace) {
+        List<?> result = stringRedisTemplate.execute(ROTATE_SCRIPT, keys(clientType, userId),
+                clientType.toString(), digest, value, String.valueOf(ttl), issued, String.valueOf(grace), now());
+        if (StringSessionRepository.isNotFound(result) && moveUntagged(userId)) {
+            result = stringRedisTemplate.execute(ROTATE_SCRIPT, keys(clientType, userId),
+                    clientType.toString(), digest, value, String.valueOf(ttl), issued, String.valueOf(grace), now());
+        }
+        return result;
+    }
+
+    /**
+     * hash tag를 켜기 전의 유저 hash와 기기타입별 string key를 새 key로 옮깁니다.
+     *
+     * @return 옮긴 key가 있으면 true
+     */
+    private boolean moveUntagged(long userId) {
+        boolean moved = moveUntaggedHash(userId);
+        if (!hashTag || !migrateUntagged) return moved;
+        for (ClientType clientType : ClientType.values()) {
+            moved |= UntaggedKeys.move(stringRedisTemplate, StringSessionRepository.refreshTokenKey(clientType, userId, false),
+                    StringSessionRepository.refreshTokenKey(clientType, userId, true));
+        }
+        return moved;
+    }
+
+    private void deleteUntagged(ClientType clientType, long userId) {
+        if (hashTag && migrateUntagged) stringRedisTemplate.delete(StringSessionRepository.refreshTokenKey(clientType, userId, false));
+    }
+
+    private boolean moveUntaggedHash(long userId) {
+        if (!hashTag || !migrateUntagged) return false;
+        return UntaggedKeys.move(stringRedisTemplate, sessionKey(userId, false), sessionKey(userId, true));
+    }
+
+    /**
+     * [유저 hash key, 같은 세션의 이전 string key]
+     */
+    private List<String> keys(ClientType clientType, long userId) {
+        return Arrays.asList(sessionKey(userId, hashTag), StringSessionRepository.refreshTokenKey(clientType, userId, hashTag));
+    }
+
+    static String sessionKey(long userId, boolean hashTag) {
+        return "S/" + StringSessionRepository.userTag(userId, hashTag);
+    }
+
+    private static String now() {
+        return String.valueOf(Instant.now().getEpochSecond());
+    }
+}
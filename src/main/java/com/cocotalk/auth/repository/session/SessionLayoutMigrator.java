@@ -0,0 +1,81 @@
+package com.cocotalk.auth.repository.session;
+
+import com.cocotalk.auth.dto.common.ClientType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * redis.session.layout=hash 로 바꾼 뒤, string key(RT/{clientType}/{userId})에 남아있는 세션을
+ * 백그라운드에서 유저별 hash로 옮깁니다.
+ * 옮겨지기 전의 세션도 HashSessionRepository가 조회 시점에 옮기므로, migrator는 남은 key를 미리 정리하는 역할입니다.
+ *
+ * redis.session.migrate.enabled : migrator 실행 여부
+ * redis.session.migrate.batch-size : SCAN 한 번에 가져올 key 수, 이 개수만큼 옮길 때마다 pause 만큼 쉽니다.
+ * redis.session.migrate.pause : batch 사이 대기시간 (ms)
+ * cluster 모드에서는 node 전체를 SCAN할 수 없으므로 조회 시점 이동에만 의존합니다.
+ *
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "redis.session.layout", havingValue = "hash")
+public class SessionLayoutMigrator {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HashSessionRepository hashSessionRepository;
+
+    @Value("${redis.session.migrate.enabled:false}")
+    boolean enabled;
+    @Value("${redis.session.migrate.batch-size:500}")
+    int batchSize;
+    @Value("${redis.session.migrate.pause:100}")
+    long pause;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        Thread thread = new Thread(this::migrateAll, "session-layout-migrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void migrateAll() {
+        log.info("[SessionLayoutMigrator] start");
+        ScanOptions options = ScanOptions.scanOptions().match("RT/*").count(batchSize).build();
+        long migrated = 0;
+        long failed = 0;
+        try (Cursor<byte[]> cursor = stringRedisTemplate.executeWithStickyConnection(
+                (RedisCallback<Cursor<byte[]>>) connection -> connection.scan(options))) {
+            while (cursor != null && cursor.hasNext()) {
+                String key = new String(cursor.next(), StandardCharsets.UTF_8);
+                try {
+                    String[] parts = key.split("/");
+                    String userId = parts[2].replace("{", "").replace("}", ""); // redis.key.hash-tag
+                    hashSessionRepository.get(ClientType.valueOf(parts[1]), Long.parseLong(userId));
+                    migrated++;
+                } catch (Exception e) {
+                    failed++;
+                    log.error("[SessionLayoutMigrator] failed to migrate key : " + key, e);
+                }
+                if ((migrated + failed) % batchSize == 0) Thread.sleep(pause);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("[SessionLayoutMigrator] stopped", e);
+        }
+        log.info("[SessionLayoutMigrator] finished. migrated : " + migrated + ", failed : " + failed);
+    }
+}
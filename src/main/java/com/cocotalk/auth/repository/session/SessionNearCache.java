@@ -0,0 +1,229 @@
+package com.cocotalk.auth.repository.session;
+
+import com.cocotalk.auth.dto.common.ClientType;
+import com.cocotalk.auth.dto.common.payload.RefreshTokenRecord;
+import com.cocotalk.auth.dto.common.response.ResponseStatus;
+import com.cocotalk.auth.exception.CustomException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ *
+ * refresh token 세션 기록의 local near cache (redis.session.near-cache.enabled=true 일 때만 사용)
+ * /device 처럼 자주 호출되는 조회를 redis까지 가지 않고 처리합니다.
+ *
+ * 세션이 바뀌면(로그인, 재발급, 로그아웃) 바꾼 서버가 redis pub/sub 채널로 key를 알리고, 모든 서버가 해당 항목을 지웁니다.
+ * 구독이 끊긴 동안에는 다른 서버의 변경을 알 수 없으므로, heartbeat가 끊기면 cache를 비우고 다시 받을 때까지 사용하지 않습니다.
+ *
+ * 메시지 : {서버 id} {순번} {key 또는 heartbeat}
+ * 서버마다 보내는 메시지(heartbeat 포함)에 1씩 늘어나는 순번을 붙이고, 받는 쪽은 서버별로 순번이 건너뛰면
+ * 그 사이 메시지를 놓친 것으로 보고 cache 전체를 비웁니다. (짧은 재연결 동안 놓친 메시지, 발행에 실패한 메시지)
+ * 발행에 실패하면 순번은 그대로 소비되므로 다른 서버는 이 서버의 다음 메시지(늦어도 다음 heartbeat)에서 누락을 알게 되고,
+ * 세션을 변경한 요청은 DATABASE_ERROR로 실패합니다.
+ * 놓친 메시지를 발견한 횟수는 session.near-cache.gaps로 남깁니다.
+ * replica에서 읽는 경우(spring.redis.read-from) 복제 지연 동안 이전 값을 다시 읽어올 수 있어, replica-lag 후에 한 번 더 지웁니다.
+ *
+ * redis.session.near-cache.max-size : 최대 항목 수
+ * redis.session.near-cache.ttl : 항목 유지 시간 (초)
+ * redis.session.near-cache.heartbeat : heartbeat 간격 (초)
+ * redis.session.near-cache.replica-lag : replica 읽기 시 두 번째 무효화까지의 시간 (ms)
+ *
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionNearCache implements MessageListener {
+    static final String CHANNEL = "session-invalidation";
+    private static final String HEARTBEAT = "*";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${redis.session.near-cache.enabled:false}")
+    boolean enabled;
+    @Value("${redis.session.near-cache.max-size:100000}")
+    long maxSize;
+    @Value("${redis.session.near-cache.ttl:30}")
+    long ttl;
+    @Value("${redis.session.near-cache.heartbeat:5}")
+    long heartbeat;
+    @Value("${redis.session.near-cache.replica-lag:1000}")
+    long replicaLag;
+    @Value("${spring.redis.read-from:}")
+    String readFrom;
+
+    private Cache<String, RefreshTokenRecord> cache;
+    private RedisMessageListenerContainer listenerContainer;
+    private ScheduledExecutorService scheduler;
+    private Counter localInvalidations;
+    private Counter remoteInvalidations;
+    private Counter gaps;
+    private volatile long lastMessageAt;
+    private volatile boolean subscribed;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Object publishLock = new Object();
+    private long sequence; // publishLock
+    private Cache<String, Long> lastSequences; // 서버별 마지막으로 받은 순번 (listener thread에서만 사용)
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "session.near-cache");
+        localInvalidations = meterRegistry.counter("session.near-cache.invalidations", "source", "local");
+        remoteInvalidations = meterRegistry.counter("session.near-cache.invalidations", "source", "remote");
+        gaps = meterRegistry.counter("session.near-cache.gaps");
+        lastSequences = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(heartbeat * 10)) // 종료된 서버
+                .build();
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(stringRedisTemplate.getRequiredConnectionFactory());
+        // 순번을 받은 순서대로 확인하도록 메시지를 구독 thread에서 차례로 처리
+        listenerContainer.setTaskExecutor(new SyncTaskExecutor());
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-near-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkSubscription, heartbeat, heartbeat, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws Exception {
+        if (!enabled) return;
+        scheduler.shutdownNow();
+        listenerContainer.destroy();
+    }
+
+    /**
+     * cache에서 세션 기록을 조회하고, 없으면 loader로 읽어 저장합니다.
+     * 읽는 도중 같은 key가 무효화되면 읽기가 끝난 뒤 지워지므로 이전 값이 남지 않습니다.
+     *
+     * @param loader redis에서 세션 기록을 읽는 함수 (없으면 null)
+     * @return 세션 기록, 없으면 null
+     */
+    public RefreshTokenRecord get(ClientType clientType, long userId, Supplier<RefreshTokenRecord> loader) {
+        if (!enabled || !subscribed) return loader.get();
+        return cache.get(key(clientType, userId), key -> loader.get());
+    }
+
+    /**
+     * 세션이 바뀌었음을 이 서버의 cache와 다른 서버에 알립니다. 세션을 변경한 뒤 호출합니다.
+     *
+     * @throws CustomException 다른 서버에 알리지 못한 경우 (DATABASE_ERROR)
+     */
+    public void invalidate(ClientType clientType, long userId) {
+        if (!enabled) return;
+        String key = key(clientType, userId);
+        evict(key);
+        localInvalidations.increment();
+        try {
+            publish(key);
+        } catch (Exception e) {
+            log.error("[SessionNearCache/invalidate] failed to publish invalidation. key : " + key, e);
+            throw new CustomException(ResponseStatus.DATABASE_ERROR, e);
+        }
+    }
+
+    /**
+     * 순번을 붙여 발행합니다. 순번이 발행 순서와 같도록 한 번에 하나씩 발행하고, 실패해도 순번은 소비합니다.
+     */
+    private void publish(String key) {
+        synchronized (publishLock) {
+            sequence++;
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + " " + sequence + " " + key);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        lastMessageAt = System.currentTimeMillis();
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(" ", 3);
+        if (parts.length != 3) return; // 순번이 없는 이전 형식
+        checkSequence(parts[0], Long.parseLong(parts[1]));
+        String key = parts[2];
+        if (HEARTBEAT.equals(key)) {
+            if (!subscribed) {
+                log.info("[SessionNearCache] subscription is healthy. near cache enabled");
+                cache.invalidateAll();
+                subscribed = true;
+            }
+            return;
+        }
+        evict(key);
+        remoteInvalidations.increment();
+    }
+
+    /**
+     * 서버별 순번이 건너뛰었으면 놓친 무효화 메시지가 있으므로 cache를 모두 비웁니다.
+     */
+    private void checkSequence(String publisher, long received) {
+        Long last = lastSequences.getIfPresent(publisher);
+        lastSequences.put(publisher, received);
+        if (last != null && received != last + 1) {
+            log.warn("[SessionNearCache] missed invalidation messages from " + publisher + " : " + last + " -> " + received);
+            gaps.increment();
+            cache.invalidateAll();
+        }
+    }
+
+    private void evict(String key) {
+        cache.invalidate(key);
+        if (!readFrom.isEmpty()) {
+            scheduler.schedule(() -> cache.invalidate(key), replicaLag, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * heartbeat를 보내고, 최근 heartbeat를 받지 못했다면 구독이 끊긴 것으로 보고 cache를 비웁니다.
+     */
+    private void checkSubscription() {
+        try {
+            publish(HEARTBEAT);
+        } catch (Exception e) {
+            log.warn("[SessionNearCache] failed to publish heartbeat : " + e.getMessage());
+        }
+        if (subscribed && System.currentTimeMillis() - lastMessageAt > heartbeat * 3000) {
+            log.warn("[SessionNearCache] no invalidation message received. near cache disabled until resubscribed");
+            subscribed = false;
+            cache.invalidateAll();
+        }
+    }
+
+    private static String key(ClientType clientType, long userId) {
+        return clientType.toString() + "/" + userId;
+    }
+}
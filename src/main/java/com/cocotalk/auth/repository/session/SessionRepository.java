@@ -0,0 +1,56 @@
+package com.cocotalk.auth.repository.session;
+
+import com.cocotalk.auth.dto.common.ClientType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * redis에 refresh token 세션 기록을 저장하는 저장소
+ * redis.session.layout 설정으로 key 구조를 선택합니다.
+ *
+ * string : 기기타입별 string key (RT/{clientType}/{userId})
+ * hash : 유저별 hash 하나 (S/{userId}), 기기타입별 field
+ *
+ */
+public interface SessionRepository {
+
+    /**
+     * @return 저장된 값 (세션 기록 또는 이전 방식의 refresh token 원문), 없으면 null
+     */
+    String get(ClientType clientType, long userId);
+
+    /**
+     * 한 유저의 모든 기기타입 세션을 한 번의 명령으로 조회합니다.
+     *
+     * @return 기기타입별 저장된 값 (세션이 없는 기기타입은 포함하지 않음)
+     */
+    Map<ClientType, String> getAll(long userId);
+
+    void set(ClientType clientType, long userId, String value, long ttl);
+
+    /**
+     * 저장된 값이 expected와 같을 때만 value로 교체합니다.
+     *
+     * @return 교체 여부
+     */
+    boolean replace(ClientType clientType, long userId, String expected, String value, long ttl);
+
+    void delete(ClientType clientType, long userId);
+
+    /**
+     * refresh token 비교 후 교체 (compare-and-rotate)
+     * 요청 token digest가 저장된 세션 기록의 digest와 같으면 새 기록으로 교체하고 재발급 결과를 grace 동안 보관합니다.
+     * 직전 token digest와 같으면 보관 중인 재발급 결과를 반환하고, 보관 시간이 지났다면 세션을 삭제합니다.
+     *
+     * @param digest 요청 refresh token의 digest
+     * @param value 새 세션 기록
+     * @param ttl 새 세션 기록의 만료시간(초)
+     * @param issued 재발급 결과
+     * @param grace 재발급 결과 보관 시간(초)
+     * @return [결과 코드, (재발급 결과)]
+     *         0 : 세션 없음, 1 : 교체, 2 : 불일치, 3 : 이전 방식 값, 4 : 먼저 재발급된 결과 반환, -1 : 재사용 (세션 삭제)
+     */
+    List<?> rotate(ClientType clientType, long userId, String digest, String value, long ttl, String issued, long grace);
+}
@@ -0,0 +1,154 @@
+package com.cocotalk.auth.repository.session;
+
+import com.cocotalk.auth.dto.common.ClientType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ *
+ * 기기타입별 string key에 세션 기록을 저장하는 저장소 (redis.session.layout=string, 기본값)
+ *
+ * RT/{clientType}/{userId} : 세션 기록
+ * RR/{clientType}/{userId} : 재발급 결과 (grace 동안 보관)
+ * redis.key.hash-tag=true 이면 userId를 {userId} 로 감싸 한 유저의 key가 cluster의 한 slot에 모이도록 합니다.
+ * hash tag를 켜기 전에 저장된 세션은 새 key에서 찾지 못했을 때 이전 key에서 옮겨 옵니다. (redis.key.migrate-untagged)
+ * 세션을 새로 기록하거나 삭제할 때는 이전 key도 지워, 로그아웃한 세션이 이전 key에서 다시 옮겨지지 않도록 합니다.
+ *
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "redis.session.layout", havingValue = "string", matchIfMissing = true)
+public class StringSessionRepository implements SessionRepository {
+
+    private static final RedisScript<Long> REPLACE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) return 1 " +
+            "end return 0", Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) " +
+            "if not current then return {'0'} end " +
+            "if string.sub(current, 1, 3) ~= 'v1:' then return {'3'} end " +
+            "local fields = {} " +
+            "for field in string.gmatch(current .. ':', '([^:]*):') do fields[#fields + 1] = field end " +
+            "if fields[3] == ARGV[1] then " +
+            "  redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) " +
+            "  redis.call('SET', KEYS[2], ARGV[4], 'EX', ARGV[5]) " +
+            "  return {'1'} " +
+            "end " +
+            "if fields[6] ~= nil and fields[6] ~= '' and fields[6] == ARGV[1] then " +
+            "  local issued = redis.call('GET', KEYS[2]) " +
+            "  if issued then return {'4', issued} end " +
+            "  redis.call('DEL', KEYS[1], KEYS[2]) return {'-1'} " +
+            "end " +
+            "return {'2'}", List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    @Qualifier("replicaRedisTemplate")
+    private final StringRedisTemplate replicaRedisTemplate;
+
+    @Value("${redis.key.hash-tag:false}")
+    boolean hashTag;
+    @Value("${redis.key.migrate-untagged:true}")
+    boolean migrateUntagged;
+
+    /**
+     * replica에서 조회합니다. (spring.redis.read-from)
+     */
+    @Override
+    public String get(ClientType clientType, long userId) {
+        String key = refreshTokenKey(clientType, userId, hashTag);
+        String value = replicaRedisTemplate.opsForValue().get(key);
+        if (value == null && moveUntagged(clientType, userId)) value = stringRedisTemplate.opsForValue().get(key);
+        return value;
+    }
+
+    /**
+     * 기기타입별 key를 MGET 한 번으로 조회합니다. (한 유저의 key는 같은 slot에 있어 cluster에서도 한 번에 처리)
+     */
+    @Override
+    public Map<ClientType, String> getAll(long userId) {
+        ClientType[] clientTypes = ClientType.values();
+        List<String> keys = new ArrayList<>(clientTypes.length);
+        for (ClientType clientType : clientTypes) {
+            keys.add(refreshTokenKey(clientType, userId, hashTag));
+        }
+        List<String> values = replicaRedisTemplate.opsForValue().multiGet(keys);
+        Map<ClientType, String> sessions = new EnumMap<>(ClientType.class);
+        for (int i = 0; i < clientTypes.length; i++) {
+            String value = values == null ? null : values.get(i);
+            if (value == null && moveUntagged(clientTypes[i], userId)) value = stringRedisTemplate.opsForValue().get(keys.get(i));
+            if (value != null) sessions.put(clientTypes[i], value);
+        }
+        return sessions;
+    }
+
+    @Override
+    public void set(ClientType clientType, long userId, String value, long ttl) {
+        stringRedisTemplate.opsForValue().set(refreshTokenKey(clientType, userId, hashTag), value, Duration.ofSeconds(ttl));
+        deleteUntagged(clientType, userId);
+    }
+
+    @Override
+    public boolean replace(ClientType clientType, long userId, String expected, String value, long ttl) {
+        Long result = stringRedisTemplate.execute(REPLACE_SCRIPT, Collections.singletonList(refreshTokenKey(clientType, userId, hashTag)),
+                expected, value, String.valueOf(ttl));
+        return result != null && result == 1;
+    }
+
+    @Override
+    public void delete(ClientType clientType, long userId) {
+        stringRedisTemplate.delete(refreshTokenKey(clientType, userId, hashTag));
+        deleteUntagged(clientType, userId);
+    }
+
+    @Override
+    public List<?> rotate(ClientType clientType, long userId, String digest, String value, long ttl, String issued, long grace) {
+        List<String> keys = Arrays.asList(refreshTokenKey(clientType, userId, hashTag), reissueKey(clientType, userId, hashTag));
+        List<?> result = stringRedisTemplate.execute(ROTATE_SCRIPT, keys, digest, value, String.valueOf(ttl), issued, String.valueOf(grace));
+        if (isNotFound(result) && moveUntagged(clientType, userId)) {
+            result = stringRedisTemplate.execute(ROTATE_SCRIPT, keys, digest, value, String.valueOf(ttl), issued, String.valueOf(grace));
+        }
+        return result;
+    }
+
+    /**
+     * hash tag를 켜기 전의 key(RT/{clientType}/userId)에 남은 세션을 새 key로 옮깁니다.
+     *
+     * @return 옮긴 세션이 있으면 true
+     */
+    private boolean moveUntagged(ClientType clientType, long userId) {
+        if (!hashTag || !migrateUntagged) return false;
+        return UntaggedKeys.move(stringRedisTemplate, refreshTokenKey(clientType, userId, false), refreshTokenKey(clientType, userId, true));
+    }
+
+    private void deleteUntagged(ClientType clientType, long userId) {
+        if (hashTag && migrateUntagged) stringRedisTemplate.delete(refreshTokenKey(clientType, userId, false));
+    }
+
+    static boolean isNotFound(List<?> result) {
+        return result == null || result.isEmpty() || "0".equals(String.valueOf(result.get(0)));
+    }
+
+    static String refreshTokenKey(ClientType clientType, long userId, boolean hashTag) {
+        return "RT/" + clientType.toString() + "/" + userTag(userId, hashTag);
+    }
+
+    static String reissueKey(ClientType clientType, long userId, boolean hashTag) {
+        return "RR/" + clientType.toString() + "/" + userTag(userId, hashTag);
+    }
+
+    static String userTag(long userId, boolean hashTag) {
+        return hashTag ? "{" + userId + "}" : String.valueOf(userId);
+    }
+}
@@ -0,0 +1,41 @@
+package com.cocotalk.auth.repository.session;
+
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * redis.key.hash-tag를 켜기 전에 저장된(hash tag 없는) key를 새 이름으로 옮깁니다.
+ * 두 key는 cluster에서 다른 slot에 있을 수 있어 script 하나로 처리할 수 없으므로 DUMP, PTTL 후 RESTORE로 옮깁니다.
+ * RESTORE는 새 key가 이미 있으면 실패하므로, 그 사이 새 이름으로 기록된 값(더 최근 세션)을 덮어쓰지 않습니다.
+ *
+ */
+final class UntaggedKeys {
+
+    private UntaggedKeys() {
+    }
+
+    /**
+     * @param oldKey hash tag 없는 key
+     * @param newKey hash tag를 붙인 key
+     * @return 옮긴 값이 있으면 true
+     */
+    static boolean move(StringRedisTemplate stringRedisTemplate, String oldKey, String newKey) {
+        byte[] value = stringRedisTemplate.dump(oldKey);
+        if (value == null) return false;
+        Long ttl = stringRedisTemplate.getExpire(oldKey, TimeUnit.MILLISECONDS);
+        // -1 : 만료시간 없음, -2 또는 0 : 그 사이 만료됨
+        if (ttl == null || ttl == -2 || ttl == 0) return false;
+        boolean moved = true;
+        try {
+            stringRedisTemplate.restore(newKey, value, ttl < 0 ? 0 : ttl, TimeUnit.MILLISECONDS);
+        } catch (RedisSystemException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYKEY")) throw e;
+            moved = false;
+        }
+        stringRedisTemplate.delete(oldKey);
+        return moved;
+    }
+}
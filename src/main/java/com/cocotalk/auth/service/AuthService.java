@@ -1,12 +1,12 @@
 package com.cocotalk.auth.service;
 
+import com.cocotalk.auth.dto.common.payload.RefreshTokenRecord;
 import com.cocotalk.auth.dto.common.payload.TokenPayload;
-import com.cocotalk.auth.dto.common.request.chat.CrashRequest;
-import com.cocotalk.auth.dto.common.request.push.FCMTokenRequest;
 import com.cocotalk.auth.dto.common.payload.ProfilePayload;
 import com.cocotalk.auth.exception.CustomException;
 import com.cocotalk.auth.dto.common.*;
 import com.cocotalk.auth.dto.signup.SignupInput;
+import com.cocotalk.auth.repository.UserCredential;
 import com.cocotalk.auth.repository.UserRepository;
 import com.cocotalk.auth.dto.common.response.ResponseStatus;
 import com.cocotalk.auth.dto.email.issue.IssueInput;
@@ -16,24 +16,33 @@ import com.cocotalk.auth.dto.signin.SigninInput;
 import com.cocotalk.auth.dto.signup.SignupOutput;
 import com.cocotalk.auth.entity.User;
 import com.cocotalk.auth.entity.mapper.UserMapper;
+import com.cocotalk.auth.service.RedisService.EmailCheckResult;
+import com.cocotalk.auth.service.RedisService.EmailIssueResult;
+import com.cocotalk.auth.service.RedisService.Rotation;
+import com.cocotalk.auth.service.RedisService.RotationResult;
 import com.cocotalk.auth.dto.common.response.Response;
 import com.cocotalk.auth.utils.JwtUtils;
-import com.cocotalk.auth.utils.SHA256Utils;
+import com.cocotalk.auth.utils.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import javax.mail.Message;
-import javax.mail.internet.MimeMessage;
+import javax.mail.internet.InternetAddress;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.cocotalk.auth.dto.common.response.ResponseStatus.*;
 
@@ -45,15 +54,25 @@ public class AuthService {
     private final UserMapper userMapper;
     private final UserRepository userRepository;
     private final RedisService redisService;
-    private final JavaMailSender mailSender;
+    private final MailDispatcher mailDispatcher;
     private final S3Service s3Service;
-
-    @Value("${api.gateway}")
-    String gatewayAPI;
+    private final PasswordService passwordService;
+    private final PushOutboxService pushOutboxService;
+    private final CrashNotifier crashNotifier;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final SingleFlight<String, TokenDto> reissueFlight = new SingleFlight<>();
 
     @Value("${mail.exp}")
     long mailCodeExp;
 
+    @Value("${jwt.jwks.max-age:86400}")
+    long jwksMaxAge;
+
+    @Value("${signin.deadline:3000}")
+    long signinDeadline;
+
     /**
      * 로그인
      *
@@ -65,13 +84,18 @@ public class AuthService {
         // 1. user 정보 가져오기
         log.info("[signin/ClientInfo] : "+ clientInfo);
         log.info("[signin/SigninInput] : "+ signinInput);
-        User user;
+        UserCredential user;
         try {
-            user = userRepository.findByCid(signinInput.getCid()).orElse(null);
-            if (user == null || !SHA256Utils.getEncrypt(signinInput.getPassword()).equals(user.getPassword())) {
+            user = userRepository.findCredentialByCid(signinInput.getCid()).orElse(null);
+            // 없는 아이디도 같은 비용으로 검증
+            boolean verified = user == null ? passwordService.verifyUnknown(signinInput.getPassword())
+                    : passwordService.verify(signinInput.getPassword(), user.getPassword());
+            if (!verified) {
                 return ResponseEntity.status(HttpStatus.OK).body(new Response<>(BAD_REQUEST));
             }
-            user.setLoggedinAt(LocalDateTime.now());
+            upgradePassword(user, signinInput.getPassword());
+        } catch (CustomException e){
+            throw e;
         } catch (Exception e){
             e.printStackTrace();
             throw new CustomException(DATABASE_ERROR, e);
@@ -87,14 +111,28 @@ public class AuthService {
             return ResponseEntity.status(HttpStatus.OK).body(new Response<>(BAD_REQUEST));
         }
 
-        // 3. push 서버에 fcm token 갱신하라고 알려주기
-        setFcmToken(user.getId(), signinInput.getFcmToken(), clientInfo);
-
-        // 4. redis에 refresh token 기록
-        redisService.setRefreshToken(clientInfo.getClientType(), user.getId(), refreshToken);
-
-        // 5. chat 서버에 기존에 로그인 중인 device 강제종료 요청하기 (기기별 동시 로그인 제한)
-        sendCrashRequest(accessToken, user.getId(), signinInput.getFcmToken(), clientInfo.getClientType());
+        /*
+         3~5. 모두 signin.deadline 안에서 처리
+         3. redis에 refresh token 기록 : 세션이 생기는 유일한 작업이므로 실패하거나 deadline을 넘기면 로그인 실패
+         4. chat 서버에 기존에 로그인 중인 device 강제종료 요청하기 (기기별 동시 로그인 제한, crash.transport에 따라 http 또는 redis stream)
+            : 새 세션이 기록된 뒤에만 보내고, 실패해도 로그인은 성공 (기존 기기는 다음 재발급/기기 확인에서 세션이 바뀐 것을 알게 됨)
+         5. push 서버에 fcm token 갱신 요청 (outbox에 기록, push 서버로는 PushOutboxService가 전달)
+            : 세션 기록과 동시에 처리하고, 실패해도 로그인은 성공
+         실패한 부가 작업은 signin.side-effects{branch, result} counter로 남깁니다.
+         */
+        Long userId = user.getId();
+        long deadlineAt = System.currentTimeMillis() + signinDeadline;
+        Mono<Void> session = withinDeadline(setRefreshToken(clientInfo.getClientType(), userId, refreshToken), deadlineAt)
+                .onErrorMap(TimeoutException.class, e -> {
+                    log.error("[signin] deadline exceeded. userId : " + userId);
+                    return new CustomException(SERVER_ERROR, e);
+                });
+        Mono<Void> crash = bestEffort("crash", userId, deadlineAt,
+                crashNotifier.notify(accessToken, userId, signinInput.getFcmToken(), clientInfo.getClientType()));
+        Mono<Void> push = bestEffort("push", userId, deadlineAt,
+                setFcmToken(userId, signinInput.getFcmToken(), clientInfo));
+        Mono.when(session.then(crash), push).block();
+        lastLoginRecorder.record(userId);
 
         // 6. 결과 return
         TokenDto tokenDto = TokenDto.builder()
@@ -104,40 +142,48 @@ public class AuthService {
         return ResponseEntity.status(HttpStatus.OK).body(new Response<>(tokenDto, SUCCESS));
     }
     
+    /**
+     * 검증에 성공한 비밀번호가 이전 방식(또는 낮은 cost)으로 저장되어 있으면 현재 방식으로 다시 hash해 저장합니다.
+     * 실패해도 로그인은 계속 진행하고 다음 로그인 때 다시 시도합니다.
+     *
+     * @param user 로그인한 유저
+     * @param rawPassword 검증에 성공한 비밀번호 원문
+     */
+    private void upgradePassword(UserCredential user, String rawPassword) {
+        if (!passwordService.needsUpgrade(user.getPassword())) return;
+        try {
+            userRepository.updatePassword(user.getId(), passwordService.hash(rawPassword));
+            log.info("[signin/upgradePassword] userId : " + user.getId());
+        } catch (Exception e) {
+            log.warn("[signin/upgradePassword] failed. userId : " + user.getId() + ", " + e.getMessage());
+        }
+    }
+
     /**
      * 회원가입
      *
      * @param signupInput 회원가입에 필요한 요청 모델
      * @return 회원가입된 유저의 정보
      */
-    @Transactional
     public ResponseEntity<Response<SignupOutput>> signup(SignupInput signupInput) {
         log.info("[signup/signupInput] : "+signupInput);
-        // 2. 유저 생성
+        // 1. 비밀번호 hash (hash 계산과 대기 동안 DB connection을 잡지 않도록 transaction 밖에서)
+        String password = passwordService.hash(signupInput.getPassword());
+
+        // 2. 유저 생성 (중복 여부는 DB의 unique 제약조건으로 확인)
         User user;
         try {
-            // 중복 제어
-            boolean exists = userRepository.existsByCid(signupInput.getCid())
-                    || userRepository.existsByPhone(signupInput.getPhone())
-                    || userRepository.existsByEmail(signupInput.getEmail());
-            if (exists) {
-                return ResponseEntity.status(HttpStatus.OK).body(new Response<>(EXISTS_INFO));
+            user = transactionTemplate.execute(status -> insertUser(signupInput, password));
+        } catch (CustomException e) {
+            throw e;
+        } catch (DataIntegrityViolationException e) {
+            if (!UserRepository.isDuplicateUser(e)) {
+                log.error("[signup/post] database error", e);
+                throw new CustomException(DATABASE_ERROR);
             }
-
-            // pk 생성
-            user = userRepository.save(userMapper.toEntity(signupInput));
-
-            String imgUrl = null;
-            // 이미지가 있을경우 s3에 저장
-            if(signupInput.getProfileImg()!=null && signupInput.getProfileImgThumb()!=null)
-                imgUrl = s3Service.uploadProfileImg(signupInput.getProfileImg(), signupInput.getProfileImgThumb(), user.getId());
-
-            // user에 적용
-            ProfilePayload profile = ProfilePayload.builder().profile(imgUrl).build();
-            user.setProfile(ProfilePayload.toJSON(profile)); // object -> json
-            user.setPassword(SHA256Utils.getEncrypt(signupInput.getPassword()));
-            userRepository.save(user);
-
+            // INSERT가 실패해 transaction은 rollback됨 (EXISTS_INFO)
+            log.info("[signup/post] duplicated user : " + e.getMostSpecificCause().getMessage());
+            throw new CustomException(EXISTS_INFO);
         } catch (Exception e) {
             log.error("[signup/post] database error", e);
             throw new CustomException(DATABASE_ERROR);
@@ -147,16 +193,38 @@ public class AuthService {
         return ResponseEntity.status(HttpStatus.CREATED).body(new Response<>(signupOutput, CREATED));
     }
 
+    private User insertUser(SignupInput signupInput, String password) {
+        User user = userMapper.toEntity(signupInput);
+        user.setPassword(password);
+        user.setProfile(ProfilePayload.toJSON(ProfilePayload.builder().build())); // 이미지가 없으면 INSERT 한 번으로 끝남
+        user = userRepository.save(user); // IDENTITY이므로 바로 INSERT
+
+        // 이미지가 있을경우 s3에 저장 (저장 경로에 pk가 필요하므로 INSERT 후)
+        if(signupInput.getProfileImg()!=null && signupInput.getProfileImgThumb()!=null) {
+            String imgUrl = s3Service.uploadProfileImg(signupInput.getProfileImg(), signupInput.getProfileImgThumb(), user.getId());
+            user.setProfile(ProfilePayload.toJSON(ProfilePayload.builder().profile(imgUrl).build())); // object -> json, commit 시 UPDATE
+        }
+        return user;
+    }
+
     /**
      * 로그이웃
+     * 유저의 세션을 한 번에 조회해, 요청 refresh token이 현재 세션일 때만 삭제합니다.
+     * (다른 기기 로그인으로 이미 교체된 token으로는 새 세션을 지우지 못함)
      *
      * @param clientInfo 요청 클라이언트의 정보 ( MOBILE/WEB을 별도로 관리하기 위해 필요 )
+     * @param tokenInfo 요청 header의 token 정보
      */
-    public ResponseEntity<Response<Object>> signout(ClientInfo clientInfo) {
-        String refreshToken = JwtUtils.getRefreshToken();
-        if(refreshToken!=null) {
-            Long userId = JwtUtils.getPayload(refreshToken).getUserId();
-            if(userId!=null) redisService.deleteRefreshToken(clientInfo.getClientType(), userId);
+    public ResponseEntity<Response<Object>> signout(ClientInfo clientInfo, TokenInfo tokenInfo) {
+        TokenPayload refreshPayload = tokenInfo.getRefreshPayload();
+        if(refreshPayload!=null && refreshPayload.getUserId()!=null) {
+            ClientType clientType = clientInfo.getClientType();
+            RefreshTokenRecord record = redisService.getRefreshTokens(refreshPayload.getUserId()).get(clientType);
+            if(record!=null && record.matches(tokenInfo.getRefreshToken())) {
+                redisService.deleteRefreshToken(clientType, refreshPayload.getUserId());
+            } else {
+                log.info("[signout] refresh token is not the current session. userId : "+refreshPayload.getUserId());
+            }
         }
         /*
             소켓 서버에서, 다른 기기 로그아웃 처리 요청
@@ -168,38 +236,28 @@ public class AuthService {
      * 요청 refresh token이 redis의 refresh token값과 일치한 경우 token 재발급
      *
      * @param clientInfo 요청 클라이언트의 정보 ( MOBILE/WEB을 별도로 관리하기 위해 필요 )
+     * @param tokenInfo 요청 header의 token 정보
      * @return 발급된 access Token과 refresh Token
      */
-    public ResponseEntity<Response<TokenDto>> reissue(ClientInfo clientInfo) {
+    public ResponseEntity<Response<TokenDto>> reissue(ClientInfo clientInfo, TokenInfo tokenInfo) {
         ClientType clientType = clientInfo.getClientType();
-        String refreshToken = JwtUtils.getRefreshToken();
+        String refreshToken = tokenInfo.getRefreshToken();
         if(refreshToken==null) {
             log.error("[reissue] X-REFRESH-TOKEN is null");
             return ResponseEntity.status(HttpStatus.OK).body(new Response<>(UNAUTHORIZED));
         }
+        TokenPayload refreshPayload = tokenInfo.getRefreshPayload();
+        if(refreshPayload==null) {
+            log.error("[reissue] X-REFRESH-TOKEN is invalid");
+            return ResponseEntity.status(HttpStatus.OK).body(new Response<>(UNAUTHORIZED));
+        }
         try{
-            // 1. refresh token이 서버와 일치하는지 확인
-            Long userId = JwtUtils.getPayload(refreshToken).getUserId();
-            String storeRefreshToken = redisService.getRefreshToken(clientType, userId);
-            if(!refreshToken.equals(storeRefreshToken)) {
-                log.error("[reissue] refreshToken is not equals as storeRefreshToken");
-                log.info("[reissue] request refresh token is "+ refreshToken);
-                log.info("[reissue] store   refresh token is "+ storeRefreshToken);
+            // 같은 기기에서 같은 refresh token으로 동시에 들어온 재발급 요청은 한 번만 처리하고 결과를 공유
+            String flightKey = clientType + "/" + refreshPayload.getUserId() + "/" + JwtUtils.digest(refreshToken);
+            TokenDto token = reissueFlight.execute(flightKey, () -> rotate(clientType, refreshToken, refreshPayload));
+            if(token==null) {
                 return ResponseEntity.status(HttpStatus.OK).body(new Response<>(UNAUTHORIZED));
             }
-
-            // 2. token 생성
-            String fcmToken = JwtUtils.getPayload(refreshToken).getFcmToken();
-            String newRefreshToken = JwtUtils.createRefreshToken(userId, fcmToken);
-
-            // 3. redis에 refresh token 갱신
-            redisService.setRefreshToken(clientType,userId,newRefreshToken);
-            
-            // 4. 결과 반환
-            TokenDto token = TokenDto.builder()
-                    .accessToken(JwtUtils.createAccessToken(userId,fcmToken))
-                    .refreshToken(newRefreshToken)
-                    .build();
             return ResponseEntity.status(HttpStatus.OK).body(new Response<>(token, SUCCESS));
         }catch (Exception e){
             e.printStackTrace();
@@ -207,59 +265,95 @@ public class AuthService {
         }
     }
 
+    /**
+     * 새 token을 발급하고 redis의 refresh token을 교체합니다.
+     *
+     * @param clientType 요청 클라이언트의 기기타입
+     * @param refreshToken 요청 refresh token
+     * @param refreshPayload 요청 refresh token의 payload
+     * @return 요청자에게 내려줄 token, 교체에 실패한 경우 null
+     */
+    private TokenDto rotate(ClientType clientType, String refreshToken, TokenPayload refreshPayload) {
+        // 1. token 생성
+        Long userId = refreshPayload.getUserId();
+        String fcmToken = refreshPayload.getFcmToken();
+        TokenDto newToken = TokenDto.builder()
+                .accessToken(JwtUtils.createAccessToken(userId,fcmToken))
+                .refreshToken(JwtUtils.createRefreshToken(userId, fcmToken))
+                .build();
+
+        // 2. refresh token이 서버와 일치하면 redis의 refresh token 교체 (한 번의 redis 요청으로 원자적으로 처리)
+        Rotation rotation = redisService.rotateRefreshToken(clientType, userId, refreshToken, newToken);
+        if(rotation.getResult()==RotationResult.REUSED) {
+            log.warn("[reissue] rotated refresh token is reused. session is revoked : userId "+ userId + ", token id " + refreshPayload.getTokenId());
+        }
+        if(!rotation.isSuccess()) {
+            log.error("[reissue] refreshToken is not equals as stored refresh token : " + rotation.getResult());
+            log.info("[reissue] request refresh token id is "+ refreshPayload.getTokenId());
+            return null;
+        }
+
+        // 3. 결과 반환 (COALESCED인 경우 먼저 재발급된 token)
+        return rotation.getToken();
+    }
+
     /**
      * 이메일로 인증코드 전송
+     * 코드를 기록한 뒤 바로 반환하고, 메일은 MailDispatcher가 보냅니다.
+     * 이메일별, ip별 발급 제한을 넘으면 메일을 보내지 않고 TOO_MANY_REQUESTS를 반환합니다.
      *
+     * @param clientInfo 요청자의 client 정보 ( ip별 발급 제한에 사용 )
      * @param issueInput 인증 코드를 보낼 이메일이 담긴 요청 모델
      * @return 전송한 인증코드의 만료시간이 담긴 모델
      */
-    public ResponseEntity<Response<IssueOutput>> sendMail(IssueInput issueInput) {
+    public ResponseEntity<Response<IssueOutput>> sendMail(ClientInfo clientInfo, IssueInput issueInput) {
         log.info("[sendMail/IssueInput] : "+issueInput);
         IssueOutput emailOutput;
         try {
-            // 1. 인증 메일 전송
+            // 1. 받는 주소 검증
+            InternetAddress to = new InternetAddress(issueInput.getEmail(), true);
             String generatedString = RandomStringUtils.random(10, true, true);
-            MimeMessage message = mailSender.createMimeMessage();
-            message.addRecipients(Message.RecipientType.TO, issueInput.getEmail());//보내는 대상
-            message.setSubject("[코코톡] 이메일 인증번호입니다.");
-            String msgg= "<div style='margin:100px;'>" +
-                    "<h1> 안녕하세요 코코톡입니다 </h1>" +
-                    "<br>" +
-                    "<p>아래 코드를 입력해주세요<p>" +
-                    "<br>" +
-                    "<div align='center' style='background-color: #aecdb3a1; border-radius: 60% 10%; padding: 10px; font-family:verdana';>" +
-                    "<h3 style='color:#747474;'> 코드입니다</h3>" +
-                    "<div style='font-size:130%'>" +
-                    "CODE : <strong>" +
-                    generatedString +
-                    "</strong><div><br/>" +
-                    "</div>";
-            message.setText(msgg, "utf-8", "html");
-
             LocalDateTime expirationDate = LocalDateTime.now().plusSeconds(mailCodeExp);
             emailOutput = IssueOutput.builder().expirationDate(expirationDate).build();
-            mailSender.send(message);
 
-            // 2. redis에 code 기록
-            redisService.setEmailCode(issueInput.getEmail(), generatedString);
+            // 2. 대기열 자리 확보 (가득 차면 발급 횟수를 쓰지 않고 SERVER_BUSY)
+            MailDispatcher.Reservation reservation = mailDispatcher.reserve();
+            try {
+                // 3. 발급 제한 확인 후 redis에 code 기록
+                EmailIssueResult issueResult = redisService.issueEmailCode(issueInput.getEmail(), clientInfo.getIp(), generatedString);
+                if (issueResult != EmailIssueResult.ISSUED) {
+                    return ResponseEntity.status(HttpStatus.OK).body(new Response<>(TOO_MANY_REQUESTS));
+                }
+
+                // 4. 인증 메일 발송 요청 (발송은 MailDispatcher가 처리)
+                reservation.submit(to, generatedString);
+            } finally {
+                reservation.cancel(); // 발송 요청을 하지 않은 경우 자리 반환
+            }
 
+        } catch (CustomException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.OK).body(new Response<>(BAD_REQUEST));
         }
-        // 3. 결과 return
+        // 5. 결과 return
         return ResponseEntity.status(HttpStatus.OK).body(new Response<>(emailOutput, SUCCESS));
     }
 
     /**
      * 해당 이메일의 인증코드가 sendMail 함수로 전송한 인증코드와 일치하는지 검증
+     * 일치한 코드는 삭제되어 다시 사용할 수 없고, 검증 실패 횟수를 넘으면 TOO_MANY_REQUESTS를 반환합니다.
      *
      * @param validationInput 이메일과 인증코드가 담긴 요청 모델
      * @return 해당 이메일의 인증코드가 유효한지에 대한 결과
      */
     public ResponseEntity<Response<ValidationDto>> checkMail(ValidationInput validationInput) {
         log.info("[checkMail/ValidationInput] : "+validationInput);
-        String code = redisService.getEmailCode(validationInput.getEmail());
-        Boolean res = code!=null && validationInput.getCode().equals(code);
+        EmailCheckResult checkResult = redisService.consumeEmailCode(validationInput.getEmail(), validationInput.getCode());
+        if (checkResult == EmailCheckResult.LOCKED) {
+            return ResponseEntity.status(HttpStatus.OK).body(new Response<>(TOO_MANY_REQUESTS));
+        }
+        Boolean res = checkResult == EmailCheckResult.VALID;
         ValidationDto validationOutput = ValidationDto.builder().isValid(res).build();
         return ResponseEntity.status(HttpStatus.OK).body(new Response<>(validationOutput, SUCCESS));
     }
@@ -267,82 +361,93 @@ public class AuthService {
 
     /**
      * 마지막으로 로그인한 기기 검증
-     * request의 accesstoken 속 fcmtoken과 redis에 보관된 마지막 접속자의 refreshtoken속 fcmtoken을 비교
+     * request의 accesstoken 속 fcmtoken과 redis에 보관된 마지막 접속자의 기기 fingerprint를 비교
+     * redis를 사용할 수 없는 동안(degraded mode)에는 유효한 token이면 마지막 로그인 기기로 간주합니다.
      *
      * @param clientInfo 요청자의 client 정보 ( MOBILE/WEB을 별도로 관리하기 위해 필요 )
+     * @param tokenInfo 요청 header의 token 정보
      * @return 마지막으로 로그인힌 기기가 맞는지에 대한 결과
      */
-    public ResponseEntity<Response<ValidationDto>> checkLastly(ClientInfo clientInfo) {
-        String accessToken = JwtUtils.getAccessToken();
-        if(accessToken==null)
+    public ResponseEntity<Response<ValidationDto>> checkLastly(ClientInfo clientInfo, TokenInfo tokenInfo) {
+        TokenPayload currTP = tokenInfo.getAccessPayload();
+        if(currTP==null)
             return ResponseEntity.status(HttpStatus.OK).body(new Response<>(ResponseStatus.UNAUTHORIZED));
+        if(redisService.isDegraded()) {
+            log.warn("[checkLastly] redis degraded. answer from token. userId : "+currTP.getUserId());
+            ValidationDto validationDto = ValidationDto.builder().isValid(true).build();
+            return ResponseEntity.status(HttpStatus.OK).body(new Response<>(validationDto, SUCCESS));
+        }
         /*
          [인증 요청한 기기]의 FCM Token과
          서버에 기록된 [마지막 로그인 기기]의 FCM Token
          일치하는지 비교
          */
-        TokenPayload currTP = JwtUtils.getPayload(accessToken);
-
-        String lastlyRToken = redisService.getRefreshToken(clientInfo.getClientType(), currTP.getUserId()); //마지막 로그인 유저의 refresh token
-        String lastlyFToken = JwtUtils.getPayload(lastlyRToken).getFcmToken(); //lastlyRToken로 마지막 로그인한 기기 fcm token 구함
-        Boolean res = currTP.getFcmToken().equals(lastlyFToken);
+        RefreshTokenRecord lastlyRecord = redisService.getRefreshToken(clientInfo.getClientType(), currTP.getUserId()); //마지막 로그인 기기의 세션 기록 (near cache, 없으면 유저 세션 전체를 한 번에 조회)
+        Boolean res = lastlyRecord!=null && lastlyRecord.isDevice(currTP.getFcmToken()); //세션 기록의 기기 fingerprint와 비교
         ValidationDto validationDto = ValidationDto.builder().isValid(res).build();
         return ResponseEntity.status(HttpStatus.OK).body(new Response<>(validationDto, SUCCESS));
     }
 
     /**
-     * Push 서버로 fcm token을 갱신해달라는 요청을 보냄
+     * 다른 서비스가 token을 직접 검증할 때 사용할 공개키 목록 (JWK Set)
+     * 공개키는 자주 바뀌지 않으므로 Cache-Control을 길게 설정합니다.
+     * key를 교체할 때는 새 공개키를 jwt.ec.retired 등에 먼저 배포한 뒤 max-age 이상 지나서 서명 key를 바꿔야 합니다.
+     *
+     * @return JWK Set
+     */
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.status(HttpStatus.OK)
+                .cacheControl(CacheControl.maxAge(jwksMaxAge, TimeUnit.SECONDS).cachePublic())
+                .body(JwtUtils.getJwks());
+    }
+
+    /**
+     * Push 서버로 보낼 fcm token 갱신 요청을 outbox에 기록
+     * push 서버의 응답을 기다리지 않으며, 전달과 재시도는 PushOutboxService가 처리합니다.
      *
      * @param userId fcmToken을 갱신할 userId
      * @param fcmToken 갱신할 새로운 fcmToken
      * @param clientInfo 요청자의 client 정보 ( MOBILE/WEB을 별도로 관리하기 위해 필요 )
+     * @return 기록 결과 (실패 시 DATABASE_ERROR)
      */
-    private void setFcmToken(Long userId, String fcmToken, ClientInfo clientInfo){
-        FCMTokenRequest fcmTokenDto = FCMTokenRequest.builder()
-                .userId(userId)
-                .fcmToken(fcmToken)
-                .build();
-        WebClient webClient = WebClient.create(gatewayAPI+"/push");
-        try{
-             String response =  webClient.post()
-                      .uri("/device")
-                      .header("User-Agent", clientInfo.getAgent())
-                      .header("X-Forwarded-For", clientInfo.getIp())
-                      .contentType(MediaType.APPLICATION_JSON)
-                      .bodyValue(fcmTokenDto)
-                      .retrieve()
-                      .bodyToMono(String.class).block();
-            log.info("[setFcmToken/result] :" + response);
-        }catch (Exception e){
-            throw new CustomException(SERVER_ERROR,e);
-        }
+    private Mono<Void> setFcmToken(Long userId, String fcmToken, ClientInfo clientInfo){
+        return Mono.fromRunnable(() -> pushOutboxService.enqueue(userId, fcmToken, clientInfo))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> !(e instanceof CustomException), e -> new CustomException(DATABASE_ERROR,e))
+                .then();
     }
 
     /**
-     * chat server에게 현재 로그인한 기기를 제외하고 같은 타입의 기기는 로그아웃 처리해 달라는 요청을 보냄
-     * ex) 모바일로 로그인 했으면 다른 모바일 기기는 로그인이 해제되어야 함
+     * 로그인 시각부터 signin.deadline이 지나면 TimeoutException으로 끝냅니다.
+     */
+    private Mono<Void> withinDeadline(Mono<Void> branch, long deadlineAt){
+        return branch.timeout(Mono.defer(() -> Mono.delay(Duration.ofMillis(Math.max(0, deadlineAt - System.currentTimeMillis())))));
+    }
+
+    /**
+     * 실패해도 로그인을 실패시키지 않는 부가 작업 (실패와 deadline 초과는 기록만 함)
      *
-     * @param userId 현재 로그인한 user의 id
-     * @param fcmToken 현재 로그인한 user의 device 정보 (FCM TOKEN)
-     * @param clientType 현재 로그인한 user의 client type (WEB or MOBILE)
+     * @param branch 작업 이름 (metric tag)
      */
-    private void sendCrashRequest(String accessToken, Long userId, String fcmToken, ClientType clientType){
-        CrashRequest crashRequest = CrashRequest.builder()
-                .clientType(clientType.name())
-                .userId(userId)
-                .fcmToken(fcmToken)
-                .build();
-        WebClient webClient = WebClient.create(gatewayAPI+"/chat");
-        try{
-            webClient.post()
-                    .uri("/crash")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .header("X-ACCESS-TOKEN", accessToken)
-                    .bodyValue(crashRequest)
-                    .retrieve()
-                    .bodyToMono(String.class).block();
-        }catch (Exception e){
-            throw new CustomException(SERVER_ERROR,e);
-        }
+    private Mono<Void> bestEffort(String branch, Long userId, long deadlineAt, Mono<Void> work){
+        return withinDeadline(work, deadlineAt)
+                .doOnSuccess(v -> meterRegistry.counter("signin.side-effects", "branch", branch, "result", "success").increment())
+                .onErrorResume(e -> {
+                    log.warn("[signin] " + branch + " failed. userId : " + userId + ", " + e);
+                    meterRegistry.counter("signin.side-effects", "branch", branch,
+                            "result", e instanceof TimeoutException ? "timeout" : "failed").increment();
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * redis에 refresh token 세션 기록 (redis 접근은 blocking이므로 별도 thread에서 실행)
+     *
+     * @return 기록 결과 (실패 시 DATABASE_ERROR)
+     */
+    private Mono<Void> setRefreshToken(ClientType clientType, Long userId, String refreshToken){
+        return Mono.fromRunnable(() -> redisService.setRefreshToken(clientType, userId, refreshToken))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
     }
 }
@@ -0,0 +1,136 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.dto.common.ClientType;
+import com.cocotalk.auth.dto.common.request.chat.CrashRequest;
+import com.cocotalk.auth.exception.CustomException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.util.Collections;
+import java.util.Objects;
+
+import static com.cocotalk.auth.dto.common.response.ResponseStatus.SERVER_ERROR;
+
+/**
+ *
+ * 중복 로그인(crash) 알림
+ * 같은 타입의 다른 기기를 로그아웃 시키도록 chat 서버에 알립니다.
+ *
+ * crash.transport=http : gateway를 거쳐 chat 서버의 /crash api를 호출 (기본값)
+ * crash.transport=stream : redis stream(EVENT/crash)에 이벤트를 추가하고, chat 서버들이 consumer group으로 읽어 처리
+ *   이벤트 필드 : clientType, userId, fcmToken (없으면 빈 문자열)
+ *   다른 redis 명령과 같은 circuit breaker를 거치므로, redis 장애 중에는 기다리지 않고 바로 실패(또는 http로 전환)합니다.
+ *   stream 길이는 crash.stream.max-length 근처로 유지합니다.
+ *   crash.stream.fallback-to-http=true 면 stream 추가에 실패했을 때 http로 다시 보냅니다.
+ *
+ * 결과는 crash.notifications{transport, result} counter로 남깁니다.
+ *
+ */
+@Slf4j
+@Service
+public class CrashNotifier {
+    static final String STREAM_KEY = "EVENT/crash";
+    static final String TRANSPORT_HTTP = "http";
+    static final String TRANSPORT_STREAM = "stream";
+
+    // XADD와 MAXLEN trim을 한 번의 왕복으로 처리
+    private static final RedisScript<String> XADD_SCRIPT = new DefaultRedisScript<>(
+            "return redis.call('XADD', KEYS[1], 'MAXLEN', '~', ARGV[1], '*', " +
+            "'clientType', ARGV[2], 'userId', ARGV[3], 'fcmToken', ARGV[4])", String.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final WebClient chatWebClient;
+    private final RetryBackoffSpec chatRetry;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreaker redisCircuitBreaker;
+
+    @Value("${crash.transport:http}")
+    String transport;
+    @Value("${crash.stream.max-length:100000}")
+    long maxLength;
+    @Value("${crash.stream.fallback-to-http:true}")
+    boolean fallbackToHttp;
+
+    public CrashNotifier(StringRedisTemplate stringRedisTemplate,
+                         @Qualifier("chatWebClient") WebClient chatWebClient,
+                         @Qualifier("chatRetry") RetryBackoffSpec chatRetry,
+                         MeterRegistry meterRegistry,
+                         CircuitBreaker redisCircuitBreaker) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.chatWebClient = chatWebClient;
+        this.chatRetry = chatRetry;
+        this.meterRegistry = meterRegistry;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+    }
+
+    /**
+     * 현재 로그인한 기기를 제외하고 같은 타입의 기기는 로그아웃 처리하도록 알림
+     * ex) 모바일로 로그인 했으면 다른 모바일 기기는 로그인이 해제되어야 함
+     *
+     * @param accessToken 현재 로그인한 user의 access token (http 호출 시 사용)
+     * @param userId 현재 로그인한 user의 id
+     * @param fcmToken 현재 로그인한 user의 device 정보 (FCM TOKEN)
+     * @param clientType 현재 로그인한 user의 client type (WEB or MOBILE)
+     * @return 요청 결과 (실패 시 SERVER_ERROR)
+     */
+    public Mono<Void> notify(String accessToken, Long userId, String fcmToken, ClientType clientType) {
+        CrashRequest crashRequest = CrashRequest.builder()
+                .clientType(clientType.name())
+                .userId(userId)
+                .fcmToken(fcmToken)
+                .build();
+        if (!TRANSPORT_STREAM.equals(transport)) return sendHttp(accessToken, crashRequest);
+
+        Mono<Void> stream = publish(crashRequest);
+        if (!fallbackToHttp) return stream;
+        return stream.onErrorResume(e -> {
+            log.warn("[CrashNotifier/notify] stream failed, fallback to http. userId : " + userId + ", " + e.getMessage());
+            return sendHttp(accessToken, crashRequest);
+        });
+    }
+
+    private Mono<Void> publish(CrashRequest crashRequest) {
+        return Mono.fromCallable(() -> redisCircuitBreaker.executeSupplier(() -> stringRedisTemplate.execute(XADD_SCRIPT,
+                        Collections.singletonList(STREAM_KEY),
+                        String.valueOf(maxLength),
+                        crashRequest.getClientType(),
+                        String.valueOf(crashRequest.getUserId()),
+                        Objects.toString(crashRequest.getFcmToken(), ""))))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnSuccess(id -> count(TRANSPORT_STREAM, "sent"))
+                .doOnError(e -> count(TRANSPORT_STREAM, "failed"))
+                .onErrorMap(e -> !(e instanceof CustomException), e -> new CustomException(SERVER_ERROR, e))
+                .then();
+    }
+
+    private Mono<Void> sendHttp(String accessToken, CrashRequest crashRequest) {
+        return chatWebClient.post()
+                .uri("/crash")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-ACCESS-TOKEN", accessToken)
+                .bodyValue(crashRequest)
+                .retrieve()
+                .bodyToMono(String.class)
+                .retryWhen(chatRetry)
+                .doOnSuccess(response -> count(TRANSPORT_HTTP, "sent"))
+                .doOnError(e -> count(TRANSPORT_HTTP, "failed"))
+                .onErrorMap(e -> !(e instanceof CustomException), e -> new CustomException(SERVER_ERROR, e))
+                .then();
+    }
+
+    private void count(String transport, String result) {
+        meterRegistry.counter("crash.notifications", "transport", transport, "result", result).increment();
+    }
+}
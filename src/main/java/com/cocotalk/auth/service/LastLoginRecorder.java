@@ -0,0 +1,110 @@
+package com.cocotalk.auth.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * 최종 접속 시각 write-behind
+ * 로그인마다 UPDATE를 실행하지 않고 유저별 최근 접속 시각만 메모리에 모아 두었다가
+ * flush-interval마다 JDBC batch UPDATE 한 번으로 기록합니다. 종료 시에도 남은 기록을 flush합니다.
+ * 기록에 실패하면 다음 주기에 다시 시도하며, 서버가 비정상 종료되면 마지막 주기의 기록은 사라질 수 있습니다.
+ *
+ * 대기 중인 유저 수는 last-login.pending, flush 시간은 last-login.flush로 남깁니다.
+ *
+ * last-login.flush-interval : flush 주기 (ms)
+ * last-login.batch-size : batch UPDATE 한 번에 기록하는 유저 수
+ *
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LastLoginRecorder {
+    static final String UPDATE_SQL = "UPDATE user SET loggedin_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${last-login.batch-size:500}")
+    int batchSize;
+
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() {
+        flushTimer = meterRegistry.timer("last-login.flush");
+        meterRegistry.gaugeMapSize("last-login.pending", Tags.empty(), pending);
+    }
+
+    /**
+     * 유저의 접속 시각을 기록합니다. 같은 유저는 가장 최근 시각만 남습니다.
+     *
+     * @param userId 로그인한 유저 id
+     */
+    public void record(Long userId) {
+        record(userId, LocalDateTime.now());
+    }
+
+    void record(Long userId, LocalDateTime loggedinAt) {
+        pending.merge(userId, loggedinAt, (before, after) -> after.isAfter(before) ? after : before);
+    }
+
+    /**
+     * 모아 둔 접속 시각을 batch UPDATE로 기록합니다.
+     */
+    @Scheduled(fixedDelayString = "${last-login.flush-interval:5000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+        List<Map.Entry<Long, LocalDateTime>> entries = new ArrayList<>(pending.entrySet());
+        // 동시에 실행되는 UPDATE끼리 row lock 순서가 같도록 id 순으로 기록
+        entries.sort(Map.Entry.comparingByKey());
+        long start = System.nanoTime();
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<Map.Entry<Long, LocalDateTime>> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+            List<Object[]> args = new ArrayList<>(batch.size());
+            for (Map.Entry<Long, LocalDateTime> entry : batch) {
+                args.add(new Object[]{Timestamp.valueOf(entry.getValue()), entry.getKey()});
+            }
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+            } catch (Exception e) {
+                log.warn("[LastLoginRecorder/flush] failed. retry next time. pending : " + pending.size() + ", " + e.getMessage());
+                return;
+            }
+            // flush 중에 더 최근 시각이 기록된 유저는 남겨 두고 다음 주기에 기록
+            for (Map.Entry<Long, LocalDateTime> entry : batch) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("[LastLoginRecorder/flush] users : " + entries.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!pending.isEmpty()) log.warn("[LastLoginRecorder/shutdown] drop unrecorded logins : " + pending.size());
+    }
+
+    int getPendingSize() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,248 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.exception.CustomException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.cocotalk.auth.dto.common.response.ResponseStatus.SERVER_BUSY;
+
+/**
+ *
+ * 인증 메일 비동기 발송
+ * 요청 thread는 대기열에 메일을 넣고 바로 반환하며, 대기열이 가득 차면 SERVER_BUSY로 거절합니다.
+ * 인증코드를 발급하기 전에 reserve로 대기열 자리를 먼저 확보하면, 발급한 뒤 대기열이 가득 차 메일을 못 보내는 일이 없습니다.
+ * 발송 thread는 각자 SMTP 연결을 열어 두고 재사용하므로 메일마다 TLS handshake와 인증을 다시 하지 않습니다.
+ * idle-timeout 동안 보낼 메일이 없으면 연결을 닫고, 발송에 실패하면 다시 연결해 한 번 더 보냅니다.
+ *
+ * 발송 결과는 mail.deliveries{result=sent|failed|rejected}, 발송 시간은 mail.delivery,
+ * 대기열 길이는 mail.queue.size로 남깁니다.
+ *
+ * mail.dispatcher.threads : 발송 thread(SMTP 연결) 수
+ * mail.dispatcher.queue-size : 대기열 크기
+ * mail.dispatcher.idle-timeout : 사용하지 않는 SMTP 연결을 닫기까지의 시간 (ms)
+ * mail.dispatcher.shutdown-timeout : 종료 시 남은 메일을 보내며 기다리는 최대 시간 (ms)
+ *
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MailDispatcher {
+    static final String SUBJECT = "[코코톡] 이메일 인증번호입니다.";
+    private static final String TEMPLATE_PREFIX = "<div style='margin:100px;'>" +
+            "<h1> 안녕하세요 코코톡입니다 </h1>" +
+            "<br>" +
+            "<p>아래 코드를 입력해주세요<p>" +
+            "<br>" +
+            "<div align='center' style='background-color: #aecdb3a1; border-radius: 60% 10%; padding: 10px; font-family:verdana';>" +
+            "<h3 style='color:#747474;'> 코드입니다</h3>" +
+            "<div style='font-size:130%'>" +
+            "CODE : <strong>";
+    private static final String TEMPLATE_SUFFIX = "</strong><div><br/>" +
+            "</div>";
+
+    private final JavaMailSenderImpl mailSender;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mail.dispatcher.threads:2}")
+    int threads;
+    @Value("${mail.dispatcher.queue-size:1000}")
+    int queueSize;
+    @Value("${mail.dispatcher.idle-timeout:60000}")
+    long idleTimeout;
+    @Value("${mail.dispatcher.shutdown-timeout:10000}")
+    long shutdownTimeout;
+
+    private BlockingQueue<MailTask> queue;
+    private Semaphore slots; // 대기열 자리 (예약 + 대기 중인 메일)
+    private ExecutorService workers;
+    private volatile boolean running;
+    private Counter sent;
+    private Counter failed;
+    private Counter rejected;
+    private Timer deliveryTimer;
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>();
+        slots = new Semaphore(queueSize);
+        sent = meterRegistry.counter("mail.deliveries", "result", "sent");
+        failed = meterRegistry.counter("mail.deliveries", "result", "failed");
+        rejected = meterRegistry.counter("mail.deliveries", "result", "rejected");
+        deliveryTimer = meterRegistry.timer("mail.delivery");
+        meterRegistry.gauge("mail.queue.size", queue, BlockingQueue::size);
+
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "mail-dispatcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * 대기열에 남은 메일을 shutdown-timeout 동안 보내고 종료합니다.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+            log.warn("[MailDispatcher/shutdown] drop unsent mails : " + queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 인증 메일을 대기열에 넣습니다. 발송은 발송 thread가 처리합니다.
+     *
+     * @param to 받는 사람
+     * @param code 인증 코드
+     * @throws CustomException 대기열이 가득 찬 경우 (SERVER_BUSY)
+     */
+    public void submit(InternetAddress to, String code) {
+        reserve().submit(to, code);
+    }
+
+    /**
+     * 대기열 자리를 하나 확보합니다. 확보한 자리는 submit 하거나 cancel 해야 합니다.
+     *
+     * @return 확보한 대기열 자리
+     * @throws CustomException 대기열이 가득 찬 경우 (SERVER_BUSY)
+     */
+    public Reservation reserve() {
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            log.warn("[MailDispatcher/reserve] queue is full. size : " + queue.size());
+            throw new CustomException(SERVER_BUSY);
+        }
+        return new Reservation();
+    }
+
+    int getAvailableSlots() {
+        return slots.availablePermits();
+    }
+
+    /**
+     * reserve로 확보한 대기열 자리
+     */
+    public class Reservation {
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        /**
+         * 확보한 자리에 메일을 넣습니다.
+         */
+        public void submit(InternetAddress to, String code) {
+            if (!done.compareAndSet(false, true)) throw new IllegalStateException("reservation is already used");
+            queue.add(new MailTask(to, code));
+        }
+
+        /**
+         * 메일을 넣지 않고 자리를 돌려줍니다. 이미 submit 했으면 아무것도 하지 않습니다.
+         */
+        public void cancel() {
+            if (done.compareAndSet(false, true)) slots.release();
+        }
+    }
+
+    private void work() {
+        Transport transport = null;
+        long lastUsedAt = 0L;
+        try {
+            while (running || !queue.isEmpty()) {
+                MailTask task = queue.poll(Math.min(idleTimeout, 1000L), TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    if (transport != null && System.currentTimeMillis() - lastUsedAt > idleTimeout) {
+                        transport = close(transport);
+                    }
+                    continue;
+                }
+                slots.release();
+                transport = deliver(transport, task);
+                lastUsedAt = System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(transport);
+        }
+    }
+
+    /**
+     * 열어 둔 연결로 메일을 보내고, 실패하면 다시 연결해 한 번 더 보냅니다.
+     *
+     * @return 다음 메일에 사용할 연결 (연결할 수 없으면 null)
+     */
+    private Transport deliver(Transport transport, MailTask task) {
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (transport == null || !transport.isConnected()) transport = connect();
+                MimeMessage message = toMessage(task);
+                transport.sendMessage(message, message.getAllRecipients());
+                deliveryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                sent.increment();
+                return transport;
+            } catch (MessagingException | RuntimeException e) {
+                // 잘못된 메일 하나 때문에 발송 thread가 멈추지 않도록 실패로 처리
+                transport = close(transport);
+                if (attempt >= 2) {
+                    failed.increment();
+                    log.error("[MailDispatcher/deliver] failed. to : " + task.to + ", " + e.getMessage());
+                    return null;
+                }
+            }
+        }
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        return transport;
+    }
+
+    private Transport close(Transport transport) {
+        if (transport == null) return null;
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.warn("[MailDispatcher/close] " + e.getMessage());
+        }
+        return null;
+    }
+
+    private MimeMessage toMessage(MailTask task) throws MessagingException {
+        MimeMessage message = new MimeMessage(mailSender.getSession());
+        message.addRecipient(Message.RecipientType.TO, task.to);
+        message.setSubject(SUBJECT, "utf-8");
+        message.setText(TEMPLATE_PREFIX + task.code + TEMPLATE_SUFFIX, "utf-8", "html");
+        message.saveChanges();
+        return message;
+    }
+
+    @RequiredArgsConstructor
+    private static class MailTask {
+        private final InternetAddress to;
+        private final String code;
+    }
+}
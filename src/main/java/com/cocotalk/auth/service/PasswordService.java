@@ -0,0 +1,179 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.dto.common.response.ResponseStatus;
+import com.cocotalk.auth.exception.CustomException;
+import com.cocotalk.auth.utils.password.PasswordHasher;
+import com.cocotalk.auth.utils.password.ScryptPasswordHasher;
+import com.cocotalk.auth.utils.password.Sha256PasswordHasher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * 비밀번호 hash 생성/검증 서비스
+ * hash 계산은 CPU를 많이 쓰므로 요청 thread가 아닌 전용 thread pool(코어 수 만큼)에서 실행하고,
+ * 대기열이 가득 차면 기다리지 않고 SERVER_BUSY로 거절합니다.
+ *
+ * password.algorithm : 새 hash에 사용할 방식 (scrypt or sha256, 기본값 scrypt)
+ * password.scrypt.target-ms : 시작 시 scrypt 검증 한 번이 이 시간 안에 끝나도록 N을 조정
+ * password.scrypt.min-log-n, password.scrypt.max-log-n : 조정 범위 (log2(N))
+ * password.scrypt.r, password.scrypt.p : scrypt block size, parallelization
+ * password.executor.threads : hash 전용 thread 수 (기본값 코어 수)
+ * password.executor.queue-size : 대기열 크기
+ * password.executor.timeout : 요청 thread가 결과를 기다리는 최대 시간 (ms)
+ *
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PasswordService {
+    private static final String ALGORITHM_SHA256 = "sha256";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${password.algorithm:scrypt}")
+    String algorithm;
+    @Value("${password.scrypt.target-ms:100}")
+    long targetMillis;
+    @Value("${password.scrypt.min-log-n:14}")
+    int minLogN;
+    @Value("${password.scrypt.max-log-n:16}")
+    int maxLogN;
+    @Value("${password.scrypt.r:8}")
+    int r;
+    @Value("${password.scrypt.p:1}")
+    int p;
+    @Value("${password.executor.threads:0}")
+    int threads;
+    @Value("${password.executor.queue-size:64}")
+    int queueSize;
+    @Value("${password.executor.timeout:2000}")
+    long timeout;
+
+    private Sha256PasswordHasher sha256PasswordHasher;
+    private ScryptPasswordHasher scryptPasswordHasher;
+    private PasswordHasher currentHasher;
+    private List<PasswordHasher> hashers;
+    private ThreadPoolExecutor executor;
+    private String dummyHash; // 없는 유저의 로그인 검증에 사용
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "password.hasher", Tags.empty()).bindTo(meterRegistry);
+
+        sha256PasswordHasher = new Sha256PasswordHasher();
+        scryptPasswordHasher = new ScryptPasswordHasher(minLogN, r, p);
+        hashers = Arrays.asList(scryptPasswordHasher, sha256PasswordHasher);
+        if (ALGORITHM_SHA256.equals(algorithm)) {
+            currentHasher = sha256PasswordHasher;
+        } else {
+            currentHasher = scryptPasswordHasher;
+            int logN = scryptPasswordHasher.calibrate(targetMillis, minLogN, maxLogN);
+            log.info("[PasswordService/init] scrypt calibrated. log2(N) : " + logN + ", r : " + r + ", p : " + p
+                    + ", threads : " + poolSize);
+        }
+        dummyHash = currentHasher.hash(UUID.randomUUID().toString());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 현재 방식으로 비밀번호를 hash합니다.
+     *
+     * @param rawPassword 비밀번호 원문
+     * @return 방식과 cost가 기록된 hash 문자열
+     */
+    public String hash(String rawPassword) {
+        return submit(() -> currentHasher.hash(rawPassword));
+    }
+
+    /**
+     * 저장된 hash를 만든 방식으로 비밀번호를 검증합니다.
+     *
+     * @param rawPassword 비밀번호 원문
+     * @param encoded 저장된 hash 문자열
+     * @return 일치 여부
+     */
+    public boolean verify(String rawPassword, String encoded) {
+        PasswordHasher hasher = find(encoded);
+        if (hasher == null) return false;
+        if (hasher == sha256PasswordHasher) return hasher.verify(rawPassword, encoded); // 가벼운 계산은 바로 처리
+        return submit(() -> hasher.verify(rawPassword, encoded));
+    }
+
+    /**
+     * 없는 아이디의 로그인도 있는 아이디와 같은 시간이 걸리도록 고정 hash로 검증합니다.
+     * (응답 시간으로 아이디가 있는지 알 수 없도록)
+     *
+     * @param rawPassword 비밀번호 원문
+     * @return 항상 false
+     */
+    public boolean verifyUnknown(String rawPassword) {
+        verify(rawPassword, dummyHash);
+        return false;
+    }
+
+    /**
+     * 로그인 성공 후 현재 방식/cost로 다시 hash해야 하는지 여부
+     *
+     * @param encoded 저장된 hash 문자열
+     */
+    public boolean needsUpgrade(String encoded) {
+        PasswordHasher hasher = find(encoded);
+        return hasher != currentHasher || currentHasher.needsUpgrade(encoded);
+    }
+
+    private PasswordHasher find(String encoded) {
+        for (PasswordHasher hasher : hashers) {
+            if (hasher.supports(encoded)) return hasher;
+        }
+        return null;
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("[PasswordService] hasher queue is full. queue size : " + executor.getQueue().size());
+            throw new CustomException(ResponseStatus.SERVER_BUSY);
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new CustomException(ResponseStatus.SERVER_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException(ResponseStatus.INTERNAL_SERVER_ERROR, e);
+        } catch (ExecutionException e) {
+            throw new CustomException(ResponseStatus.INTERNAL_SERVER_ERROR, e.getCause());
+        }
+    }
+}
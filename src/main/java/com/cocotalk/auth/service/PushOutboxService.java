@@ -0,0 +1,286 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.dto.common.ClientInfo;
+import com.cocotalk.auth.dto.common.request.push.FCMTokenRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.RetryBackoffSpec;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * push 서버 fcm token 등록 outbox
+ * 로그인 시에는 redis stream에 등록 요청만 기록하고, dispatcher가 주기적으로 모아서 push 서버에 전달합니다.
+ * push 서버가 느리거나 장애여도 로그인은 기다리지 않고, 전달에 실패한 요청은 다시 시도합니다.
+ *
+ * 여러 auth 서버가 같은 consumer group으로 읽으므로 한 요청은 한 서버만 처리합니다.
+ * 같은 (userId, 기기타입)의 요청이 한 batch에 여러 개 있으면 마지막 요청만 전달합니다.
+ * 처리 중 서버가 죽거나 전달에 실패한 요청은 retry-delay 후 다른 서버(또는 자신)가 가져가 다시 전달하고,
+ * max-deliveries 번 실패하면 버립니다.
+ * 기기별로 마지막으로 전달을 시작한 요청 id를 redis에 남겨, 다시 가져온 요청이나 다른 서버가 읽은 요청이
+ * 그보다 이전이면 전달하지 않고 ack 합니다. (이전 fcm token이 최신 token을 덮어쓰지 않도록)
+ * dispatch는 다른 @Scheduled 작업을 막지 않도록 전용 thread에서 실행합니다.
+ *
+ * push.outbox.batch-size : 한 번에 읽는 요청 수
+ * push.outbox.interval : dispatch 주기 (ms)
+ * push.outbox.concurrency : push 서버 동시 요청 수
+ * push.outbox.retry-delay : 실패한 요청을 다시 가져가기까지의 시간 (ms)
+ * push.outbox.max-deliveries : 최대 전달 시도 횟수
+ * push.outbox.max-length : stream 최대 길이 (대략적으로 유지)
+ * push.outbox.delivered-ttl : 기기별 마지막 전달 요청 id 보관 시간 (초)
+ *
+ */
+@Slf4j
+@Service
+public class PushOutboxService {
+    static final String STREAM_KEY = "OUTBOX/push-device";
+    static final String GROUP = "push-dispatcher";
+    static final String DELIVERED_KEY_PREFIX = "OUTBOX/push-device/delivered/";
+
+    /**
+     * 기록된 id보다 이전 요청이 아니면 id를 기록하고 1, 이전 요청이면 0을 반환합니다.
+     * 같은 요청을 다시 시도하는 경우는 허용합니다.
+     */
+    private static final RedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) " +
+            "if current then " +
+            "  local cms, cseq = string.match(current, '(%d+)-(%d+)') " +
+            "  local ms, seq = string.match(ARGV[1], '(%d+)-(%d+)') " +
+            "  cms, cseq, ms, seq = tonumber(cms), tonumber(cseq), tonumber(ms), tonumber(seq) " +
+            "  if cms > ms or (cms == ms and cseq > seq) then return 0 end " +
+            "end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) return 1", Long.class);
+
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_FCM_TOKEN = "fcmToken";
+    private static final String FIELD_CLIENT_TYPE = "clientType";
+    private static final String FIELD_AGENT = "agent";
+    private static final String FIELD_IP = "ip";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final WebClient pushWebClient;
+    private final RetryBackoffSpec pushRetry;
+    private final String consumerName = ManagementFactory.getRuntimeMXBean().getName(); // pid@host
+    private final Counter delivered;
+    private final Counter failed;
+    private final Counter dropped;
+    private final Counter superseded;
+    private ScheduledExecutorService scheduler;
+
+    @Value("${push.outbox.batch-size:100}")
+    int batchSize;
+    @Value("${push.outbox.concurrency:8}")
+    int concurrency;
+    @Value("${push.outbox.retry-delay:5000}")
+    long retryDelay;
+    @Value("${push.outbox.max-deliveries:10}")
+    long maxDeliveries;
+    @Value("${push.outbox.max-length:100000}")
+    long maxLength;
+    @Value("${push.outbox.delivered-ttl:86400}")
+    long deliveredTtl;
+    @Value("${push.outbox.interval:500}")
+    long interval;
+
+    public PushOutboxService(StringRedisTemplate stringRedisTemplate,
+                             @Qualifier("pushWebClient") WebClient pushWebClient,
+                             @Qualifier("pushRetry") RetryBackoffSpec pushRetry,
+                             MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.pushWebClient = pushWebClient;
+        this.pushRetry = pushRetry;
+        this.delivered = meterRegistry.counter("push.outbox.deliveries", "result", "delivered");
+        this.failed = meterRegistry.counter("push.outbox.deliveries", "result", "failed");
+        this.dropped = meterRegistry.counter("push.outbox.deliveries", "result", "dropped");
+        this.superseded = meterRegistry.counter("push.outbox.deliveries", "result", "superseded");
+    }
+
+    @PostConstruct
+    public void init() {
+        createGroup();
+        // push 서버 응답을 기다리는 동안 공유 scheduler thread를 잡고 있지 않도록 전용 thread에서 실행
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "push-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::dispatch, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    void createGroup() {
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(STREAM_KEY.getBytes(StandardCharsets.UTF_8), GROUP, ReadOffset.from("0"), true));
+        } catch (Exception e) {
+            // 이미 group이 있으면 BUSYGROUP 오류
+            log.info("[PushOutboxService/createGroup] " + e.getMessage());
+        }
+    }
+
+    /**
+     * fcm token 등록 요청을 outbox에 기록합니다.
+     *
+     * @param userId fcmToken을 갱신할 userId
+     * @param fcmToken 갱신할 새로운 fcmToken
+     * @param clientInfo 요청자의 client 정보
+     */
+    public void enqueue(Long userId, String fcmToken, ClientInfo clientInfo) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_USER_ID, String.valueOf(userId));
+        fields.put(FIELD_FCM_TOKEN, fcmToken);
+        fields.put(FIELD_CLIENT_TYPE, String.valueOf(clientInfo.getClientType()));
+        fields.put(FIELD_AGENT, Objects.toString(clientInfo.getAgent(), ""));
+        fields.put(FIELD_IP, Objects.toString(clientInfo.getIp(), ""));
+        stringRedisTemplate.opsForStream().add(StreamRecords.newRecord().in(STREAM_KEY).ofMap(fields));
+    }
+
+    void dispatch() {
+        try {
+            List<MapRecord<String, Object, Object>> records = new ArrayList<>(reclaim());
+            records.addAll(readNew());
+            if (records.isEmpty()) return;
+            deliver(records);
+            stringRedisTemplate.opsForStream().trim(STREAM_KEY, maxLength, true);
+        } catch (Exception e) {
+            log.error("[PushOutboxService/dispatch] " + e.getMessage(), e);
+        }
+    }
+
+    private List<MapRecord<String, Object, Object>> readNew() {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                Consumer.from(GROUP, consumerName),
+                StreamReadOptions.empty().count(batchSize),
+                StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed()));
+        return records == null ? Collections.emptyList() : records;
+    }
+
+    /**
+     * retry-delay 이상 처리되지 않은 요청(전달 실패, 처리하던 서버 종료)을 가져옵니다.
+     * max-deliveries 번 시도한 요청은 버립니다.
+     */
+    private List<MapRecord<String, Object, Object>> reclaim() {
+        StreamOperations<String, Object, Object> streamOperations = stringRedisTemplate.opsForStream();
+        PendingMessages pendingMessages = streamOperations.pending(STREAM_KEY, GROUP, Range.unbounded(), batchSize);
+        List<RecordId> retry = new ArrayList<>();
+        for (PendingMessage pendingMessage : pendingMessages) {
+            if (pendingMessage.getElapsedTimeSinceLastDelivery().toMillis() < retryDelay) continue;
+            if (pendingMessage.getTotalDeliveryCount() >= maxDeliveries) {
+                log.error("[PushOutboxService/reclaim] drop fcm token registration : " + pendingMessage.getIdAsString());
+                streamOperations.acknowledge(STREAM_KEY, GROUP, pendingMessage.getId());
+                dropped.increment();
+            } else {
+                retry.add(pendingMessage.getId());
+            }
+        }
+        if (retry.isEmpty()) return Collections.emptyList();
+        return streamOperations.claim(STREAM_KEY, GROUP, consumerName, Duration.ofMillis(retryDelay),
+                retry.toArray(new RecordId[0]));
+    }
+
+    /**
+     * (userId, 기기타입)별로 마지막 요청만 push 서버에 전달하고, 성공한 key의 요청은 모두 ack 합니다.
+     * 실패한 key의 마지막 요청은 pending으로 남겨 다시 시도하고, 그보다 이전 요청은 ack 합니다.
+     * 이미 더 최근 요청의 전달을 시작한 기기의 요청은 전달하지 않고 모두 ack 합니다.
+     */
+    private void deliver(List<MapRecord<String, Object, Object>> records) {
+        Map<String, List<RecordId>> idsByDevice = new LinkedHashMap<>();
+        Map<String, MapRecord<String, Object, Object>> latestByDevice = new LinkedHashMap<>();
+        records.stream()
+                .filter(Objects::nonNull) // 이미 trim된 요청
+                .sorted(Comparator.comparing((MapRecord<String, Object, Object> record) -> record.getId().getTimestamp())
+                        .thenComparing(record -> record.getId().getSequence()))
+                .forEach(record -> {
+                    String device = record.getValue().get(FIELD_USER_ID) + "/" + record.getValue().get(FIELD_CLIENT_TYPE);
+                    idsByDevice.computeIfAbsent(device, key -> new ArrayList<>()).add(record.getId());
+                    latestByDevice.put(device, record);
+                });
+
+        List<RecordId> acknowledged = new ArrayList<>();
+        Map<String, MapRecord<String, Object, Object>> claimed = new LinkedHashMap<>();
+        latestByDevice.forEach((device, record) -> {
+            if (claim(device, record.getId())) {
+                claimed.put(device, record);
+            } else {
+                log.info("[PushOutboxService/deliver] superseded. device : " + device + ", id : " + record.getId());
+                acknowledged.addAll(idsByDevice.get(device));
+                superseded.increment();
+            }
+        });
+        Flux.fromIterable(claimed.entrySet())
+                .flatMap(entry -> send(entry.getValue())
+                        .thenReturn(true)
+                        .onErrorResume(e -> {
+                            log.warn("[PushOutboxService/deliver] failed. device : " + entry.getKey() + ", " + e.getMessage());
+                            return Mono.just(false);
+                        })
+                        .map(success -> {
+                            List<RecordId> ids = idsByDevice.get(entry.getKey());
+                            if (success) {
+                                delivered.increment();
+                                return ids;
+                            }
+                            failed.increment();
+                            return ids.subList(0, ids.size() - 1); // 마지막 요청은 다시 시도
+                        }), concurrency)
+                .doOnNext(acknowledged::addAll)
+                .blockLast();
+        if (!acknowledged.isEmpty()) {
+            stringRedisTemplate.opsForStream().acknowledge(STREAM_KEY, GROUP, acknowledged.toArray(new RecordId[0]));
+        }
+        log.info("[PushOutboxService/deliver] records : " + records.size() + ", devices : " + latestByDevice.size()
+                + ", acknowledged : " + acknowledged.size());
+    }
+
+    private boolean claim(String device, RecordId id) {
+        Long result = stringRedisTemplate.execute(CLAIM_SCRIPT, Collections.singletonList(DELIVERED_KEY_PREFIX + device),
+                id.getValue(), String.valueOf(deliveredTtl));
+        return result != null && result == 1L;
+    }
+
+    private Mono<String> send(MapRecord<String, Object, Object> record) {
+        Map<Object, Object> fields = record.getValue();
+        FCMTokenRequest fcmTokenDto = FCMTokenRequest.builder()
+                .userId(Long.valueOf(String.valueOf(fields.get(FIELD_USER_ID))))
+                .fcmToken(String.valueOf(fields.get(FIELD_FCM_TOKEN)))
+                .build();
+        return pushWebClient.post()
+                .uri("/device")
+                .header("User-Agent", String.valueOf(fields.get(FIELD_AGENT)))
+                .header("X-Forwarded-For", String.valueOf(fields.get(FIELD_IP)))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(fcmTokenDto)
+                .retrieve()
+                .bodyToMono(String.class)
+                .retryWhen(pushRetry)
+                .defaultIfEmpty("");
+    }
+}
@@ -0,0 +1,144 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.utils.TokenBuckets;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * 요청 수 제한
+ * 규칙마다 두 단계로 확인합니다.
+ * 1. 서버 local token bucket : redis까지 가지 않고 한 서버로 몰리는 요청을 거절
+ * 2. redis sliding window : 모든 서버에 들어온 요청 수로 제한
+ * redis를 사용할 수 없으면(circuit breaker가 열렸거나 명령 실패) local 제한만 적용합니다.
+ *
+ * 규칙 (rate-limit.{rule}.*)
+ *   signin-ip : /signin, client ip별
+ *   signin-cid : /signin, 로그인 아이디별
+ *   reissue-ip : /reissue, client ip별
+ *   email-ip : /email/issue, client ip별 (local만, 전체 서버 제한은 EmailCodeRepository의 EI/{ip}가 발급과 함께 확인)
+ *   email-address : /email/issue, 이메일별
+ *
+ * rate-limit.enabled : 사용 여부
+ * rate-limit.{rule}.burst, rate-limit.{rule}.rate : local bucket 크기와 초당 채워지는 token 수
+ * rate-limit.{rule}.limit, rate-limit.{rule}.window : window(초) 동안 전체 서버에서 허용하는 요청 수, limit이 0이면 local만 확인
+ *
+ * 거절은 rate-limit.rejections{rule, layer=local|redis} counter로 남깁니다.
+ *
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RateLimiter {
+    public static final String SIGNIN_IP = "signin-ip";
+    public static final String SIGNIN_CID = "signin-cid";
+    public static final String REISSUE_IP = "reissue-ip";
+    public static final String EMAIL_IP = "email-ip";
+    public static final String EMAIL_ADDRESS = "email-address";
+
+    private static final int STRIPES = 64;
+    private static final long MAX_KEYS = 100_000;
+
+    // 이전 window의 요청 수를 지난 비율만큼 줄여 더한 값으로 sliding window를 근사
+    private static final RedisScript<Long> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "local limit = tonumber(ARGV[1]) " +
+            "local weight = tonumber(ARGV[2]) " +
+            "local previous = tonumber(redis.call('GET', KEYS[2]) or '0') " +
+            "local current = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "if previous * weight + current >= limit then return 0 end " +
+            "redis.call('INCR', KEYS[1]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "return 1", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CircuitBreaker redisCircuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    private final Map<String, Rule> rules = new HashMap<>();
+    private boolean enabled;
+
+    @PostConstruct
+    public void init() {
+        enabled = environment.getProperty("rate-limit.enabled", Boolean.class, true);
+        addRule(SIGNIN_IP, 20, 5, 300, 60);
+        addRule(SIGNIN_CID, 5, 0.2, 10, 60);
+        addRule(REISSUE_IP, 30, 10, 600, 60);
+        // redis가 장애여서 EI/{ip}를 확인하지 못할 때도 ip별 발급을 제한
+        addRule(EMAIL_IP, 5, 0.1, 0, 600);
+        addRule(EMAIL_ADDRESS, 2, 0.02, 5, 600);
+    }
+
+    /**
+     * 규칙의 제한 안이면 요청 하나를 기록하고 true를 반환합니다.
+     *
+     * @param ruleName 규칙 이름
+     * @param key 제한 대상 (ip, 아이디, 이메일)
+     * @return 허용 여부
+     */
+    public boolean tryAcquire(String ruleName, String key) {
+        Rule rule = rules.get(ruleName);
+        if (!enabled || rule == null || key == null) return true;
+        if (!rule.local.tryAcquire(key)) {
+            reject(ruleName, "local");
+            return false;
+        }
+        if (rule.limit > 0 && !acquireCluster(rule, key)) {
+            reject(ruleName, "redis");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean acquireCluster(Rule rule, String key) {
+        long now = System.currentTimeMillis();
+        long window = now / rule.windowMillis;
+        double weight = 1 - (double) (now % rule.windowMillis) / rule.windowMillis;
+        // 한 key의 두 window가 같은 slot에 있도록 hash tag 사용
+        String prefix = "RL/{" + rule.name + ":" + key + "}/";
+        try {
+            Long result = redisCircuitBreaker.executeSupplier(() -> stringRedisTemplate.execute(SLIDING_WINDOW_SCRIPT,
+                    Arrays.asList(prefix + window, prefix + (window - 1)),
+                    String.valueOf(rule.limit), String.valueOf(weight), String.valueOf(rule.windowMillis * 2)));
+            return result == null || result == 1;
+        } catch (Exception e) {
+            log.debug("[RateLimiter/acquireCluster] redis unavailable. local limit only : " + e.getMessage());
+            return true;
+        }
+    }
+
+    private void reject(String ruleName, String layer) {
+        meterRegistry.counter("rate-limit.rejections", "rule", ruleName, "layer", layer).increment();
+    }
+
+    private void addRule(String name, long burst, double rate, long limit, long window) {
+        String prefix = "rate-limit." + name + ".";
+        long ruleBurst = environment.getProperty(prefix + "burst", Long.class, burst);
+        double ruleRate = environment.getProperty(prefix + "rate", Double.class, rate);
+        long ruleLimit = environment.getProperty(prefix + "limit", Long.class, limit);
+        long ruleWindow = environment.getProperty(prefix + "window", Long.class, window);
+        rules.put(name, new Rule(name, new TokenBuckets(ruleBurst, ruleRate, STRIPES, MAX_KEYS), ruleLimit, ruleWindow * 1000));
+        log.info("[RateLimiter/init] " + name + " burst : " + ruleBurst + ", rate : " + ruleRate
+                + ", limit : " + ruleLimit + "/" + ruleWindow + "s");
+    }
+
+    @RequiredArgsConstructor
+    private static class Rule {
+        private final String name;
+        private final TokenBuckets local;
+        private final long limit;
+        private final long windowMillis;
+    }
+}
@@ -1,16 +1,35 @@
 package com.cocotalk.auth.service;
 
 import com.cocotalk.auth.dto.common.ClientType;
+import com.cocotalk.auth.dto.common.TokenDto;
+import com.cocotalk.auth.dto.common.payload.RefreshTokenRecord;
+import com.cocotalk.auth.dto.common.payload.TokenPayload;
 import com.cocotalk.auth.dto.common.response.ResponseStatus;
 import com.cocotalk.auth.exception.CustomException;
+import com.cocotalk.auth.repository.email.EmailCodeRepository;
+import com.cocotalk.auth.repository.session.SessionNearCache;
+import com.cocotalk.auth.repository.session.SessionRepository;
+import com.cocotalk.auth.utils.JwtUtils;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  *
@@ -22,7 +41,14 @@ import java.time.Duration;
 @Slf4j
 public class RedisService {
 
+    private static final String TOKEN_DELIMITER = " ";
+
     private final StringRedisTemplate stringRedisTemplate;
+    private final SessionRepository sessionRepository;
+    private final SessionNearCache sessionNearCache;
+    private final EmailCodeRepository emailCodeRepository;
+    private final CircuitBreaker redisCircuitBreaker;
+    private final Map<String, PendingEmailCode> pendingEmailCodes = new ConcurrentHashMap<>();
 
     @Value("${jwt.token.exp.access}")
     long accessTokenExp;
@@ -30,29 +56,119 @@ public class RedisService {
     long refreshTokenExp;
     @Value("${mail.exp}")
     long mailCodeExp;
+    @Value("${jwt.token.reissue-grace:10}")
+    long reissueGrace;
+    @Value("${redis.degraded.email-queue-size:10000}")
+    int pendingEmailCodeLimit;
+    @Value("${mail.limit.attempts:5}")
+    int emailAttemptLimit;
+    @Value("${mail.limit.email:5}")
+    int emailIssueLimit;
+    @Value("${mail.limit.email-window:3600}")
+    long emailIssueWindow;
 
     /**
-     * userId와 기기타입(MOBILE or WEB)으로 RefreshToken을 조회합니다.
+     * userId와 기기타입(MOBILE or WEB)으로 RefreshToken의 세션 기록을 조회합니다.
+     * 이전 방식(refresh token 원문)으로 저장된 값은 세션 기록으로 변환해 다시 저장합니다.
+     * near cache가 켜져 있으면 cache에서 먼저 조회하고, 없으면 유저의 세션 전체를 한 번의 명령으로 읽어 옵니다.
      *
      * @param clientType  Refresh Token을 조회할 client 기기타입 ( MOBILE or WEB)
      * @param userId Refresh Token을 조회할 userId
-     * @return 조회한 Refresh Token 값
+     * @return 조회한 Refresh Token의 세션 기록, 없으면 null
      */
-    public String getRefreshToken(ClientType clientType, long userId){
-        String key =  "RT/"+clientType.toString()+"/"+userId;
-        log.info("[RedisService/getRefreshToken] key : "+key);
-        return getData(key);
+    public RefreshTokenRecord getRefreshToken(ClientType clientType, long userId){
+        return sessionNearCache.get(clientType, userId, () -> getRefreshTokens(userId).get(clientType));
+    }
+
+    /**
+     * 한 유저의 모든 기기타입 세션 기록을 한 번의 redis 명령으로 조회합니다. (near cache를 거치지 않음)
+     * 이전 방식(refresh token 원문)으로 저장된 값은 세션 기록으로 변환해 다시 저장합니다.
+     *
+     * @param userId 세션을 조회할 userId
+     * @return 기기타입별 세션 기록 (세션이 없는 기기타입은 포함하지 않음)
+     */
+    public Map<ClientType, RefreshTokenRecord> getRefreshTokens(long userId){
+        log.info("[RedisService/getRefreshTokens] userId : "+userId);
+        Map<ClientType, String> values = execute(() -> sessionRepository.getAll(userId));
+        Map<ClientType, RefreshTokenRecord> records = new EnumMap<>(ClientType.class);
+        values.forEach((clientType, value) -> {
+            RefreshTokenRecord record = RefreshTokenRecord.fromValue(value);
+            records.put(clientType, record!=null ? record : migrateRefreshToken(clientType, userId, value));
+        });
+        return records;
+    }
+
+    private RefreshTokenRecord loadRefreshToken(ClientType clientType, long userId){
+        log.info("[RedisService/getRefreshToken] clientType : "+clientType+", userId : "+userId);
+        String value = execute(() -> sessionRepository.get(clientType, userId));
+        if(value==null) return null;
+        RefreshTokenRecord record = RefreshTokenRecord.fromValue(value);
+        return record!=null ? record : migrateRefreshToken(clientType, userId, value);
     }
 
     /**
      * userId와 기기타입(MOBILE or WEB)이 일치하는 Refresh Token의 정보를 생성/갱신합니다.
+     * token 원문 대신 세션 기록(RefreshTokenRecord)을 저장합니다.
      *
      * @param clientType  Refresh Token을 갱신할 client 기기타입 ( MOBILE or WEB)
      * @param userId Refresh Token을 갱신할 userId
+     * @param refreshToken 새로 발급한 Refresh Token
      */
     public void setRefreshToken(ClientType clientType, long userId, String refreshToken){
-        String key =  "RT/"+clientType.toString()+"/"+userId;
-        setDataExpire(key,refreshToken,refreshTokenExp);
+        RefreshTokenRecord record = RefreshTokenRecord.of(refreshToken, JwtUtils.getUnverifiedPayload(refreshToken));
+        run(() -> sessionRepository.set(clientType, userId, record.toValue(), refreshTokenExp));
+        sessionNearCache.invalidate(clientType, userId);
+    }
+
+    /**
+     * 요청 refresh token이 저장된 세션과 일치하면 새 refresh token으로 교체합니다.
+     * 비교와 교체를 redis script 한 번으로 처리하므로, 같은 token으로 동시에 요청해도 하나만 교체에 성공합니다.
+     * 교체 직후 reissueGrace 동안 같은 token으로 들어온 요청은 (다른 서버로 들어왔더라도) 먼저 재발급된 token을 그대로 받습니다.
+     * 그 이후 이미 교체된 직전 token이 다시 사용되면 token 탈취로 보고 세션을 삭제합니다.
+     *
+     * @param clientType Refresh Token을 교체할 client 기기타입 ( MOBILE or WEB)
+     * @param userId Refresh Token을 교체할 userId
+     * @param refreshToken 요청에 사용된 refresh token
+     * @param newToken 새로 발급한 access token과 refresh token
+     * @return 교체 결과와 요청자에게 내려줄 token
+     */
+    public Rotation rotateRefreshToken(ClientType clientType, long userId, String refreshToken, TokenDto newToken){
+        String newRefreshToken = newToken.getRefreshToken();
+        RefreshTokenRecord record = RefreshTokenRecord.of(newRefreshToken, JwtUtils.getUnverifiedPayload(newRefreshToken), refreshToken);
+        Rotation rotation = rotate(clientType, userId, refreshToken, record, newToken);
+        if(rotation.getResult()==RotationResult.LEGACY) {
+            // 이전 방식으로 저장된 값은 세션 기록으로 변환한 뒤 한 번 더 시도
+            loadRefreshToken(clientType, userId);
+            rotation = rotate(clientType, userId, refreshToken, record, newToken);
+        }
+        if(rotation.getResult()==RotationResult.ROTATED || rotation.getResult()==RotationResult.REUSED) {
+            sessionNearCache.invalidate(clientType, userId);
+        }
+        log.info("[RedisService/rotateRefreshToken] clientType : "+clientType+", userId : "+userId+", result : "+rotation.getResult());
+        return rotation;
+    }
+
+    private Rotation rotate(ClientType clientType, long userId, String refreshToken, RefreshTokenRecord record, TokenDto newToken){
+        List<?> result = execute(() -> sessionRepository.rotate(clientType, userId,
+                JwtUtils.digest(refreshToken), record.toValue(), refreshTokenExp,
+                // 먼저 재발급된 token은 요청 refresh token으로 만든 key로 암호화해 같은 token을 가진 요청만 읽을 수 있도록 저장
+                JwtUtils.seal(refreshToken, newToken.getAccessToken() + TOKEN_DELIMITER + newToken.getRefreshToken()),
+                Math.max(1, reissueGrace)));
+        RotationResult rotationResult = RotationResult.of(result==null || result.isEmpty() ? null : String.valueOf(result.get(0)));
+        switch (rotationResult) {
+            case ROTATED:
+                return new Rotation(rotationResult, newToken);
+            case COALESCED:
+                String issuedValue = JwtUtils.unseal(refreshToken, String.valueOf(result.get(1)));
+                if(issuedValue==null) {
+                    log.warn("[RedisService/rotate] failed to unseal coalesced token. userId : "+userId);
+                    return new Rotation(RotationResult.MISMATCH, null);
+                }
+                String[] issued = issuedValue.split(TOKEN_DELIMITER);
+                return new Rotation(rotationResult, TokenDto.builder().accessToken(issued[0]).refreshToken(issued[1]).build());
+            default:
+                return new Rotation(rotationResult, null);
+        }
     }
 
     /**
@@ -62,30 +178,131 @@ public class RedisService {
      * @param userId Refresh Token을 제거할 userId
      */
     public void deleteRefreshToken(ClientType clientType, long userId){
-        String key =  "RT/"+clientType.toString()+"/"+userId;
-        deleteData(key);
+        run(() -> sessionRepository.delete(clientType, userId));
+        sessionNearCache.invalidate(clientType, userId);
     }
 
     /**
-     * 해당 이메일의 인증코드를 조회합니다.
+     * 이전 방식으로 저장된 refresh token 원문을 세션 기록으로 바꿔 저장합니다.
+     * 그 사이 새 로그인으로 값이 바뀌었다면 덮어쓰지 않도록 값이 그대로일 때만 교체합니다.
      *
-     * @param email 인증코드를 조회할 eamil
-     * @return 조회한 해당 이메일의 인증코드
+     * @param clientType Refresh Token의 client 기기타입 ( MOBILE or WEB)
+     * @param userId Refresh Token의 userId
+     * @param refreshToken 저장되어 있던 refresh token 원문
+     * @return 변환한 세션 기록
      */
-    public String getEmailCode(String email){
-        String key =  "E/"+email;
-        return getData(key);
+    private RefreshTokenRecord migrateRefreshToken(ClientType clientType, long userId, String refreshToken){
+        TokenPayload payload = JwtUtils.getUnverifiedPayload(refreshToken);
+        RefreshTokenRecord record = RefreshTokenRecord.of(refreshToken, payload);
+        long ttl = payload.getExpiration()==null ? refreshTokenExp
+                : (payload.getExpiration().getTime() - System.currentTimeMillis()) / 1000;
+        if(ttl<=0) return record;
+        try {
+            run(() -> sessionRepository.replace(clientType, userId, refreshToken, record.toValue(), ttl));
+            log.info("[RedisService/migrateRefreshToken] clientType : "+clientType+", userId : "+userId);
+        }catch (Exception e){
+            log.error("[RedisService/migrateRefreshToken] failed to migrate. clientType : "+clientType+", userId : "+userId, e);
+        }
+        return record;
     }
 
     /**
-     * 해당 이메일의 인증코드를 생성(기록)합니다.
+     * 이메일과 요청 ip의 발급 제한을 확인하고, 새 인증코드를 기록합니다.
+     * 코드 원문 대신 digest를 저장합니다.
+     * redis에 기록할 수 없으면(degraded mode) 이 서버에 보관했다가 redis가 회복되면 기록합니다.
+     * 보관하는 동안 이메일별 발급 횟수는 이 서버에서 세고, ip별 제한은 RateLimiter의 local 제한(email-ip)만 적용됩니다.
+     * 보관한 코드는 이 서버에서만 검증할 수 있고, 다른 서버에서는 redis가 회복되어 기록된 뒤에 검증됩니다.
      *
      * @param email 이메일
+     * @param ip 요청자 ip
      * @param code 인증코드
+     * @return 발급 결과
      */
-    public void setEmailCode(String email, String code){
-        String key =  "E/"+email;
-        setDataExpire(key,code,mailCodeExp);
+    public EmailIssueResult issueEmailCode(String email, String ip, String code){
+        String digest = JwtUtils.digest(code);
+        if(!isDegraded()) {
+            try {
+                pendingEmailCodes.remove(email); // 대기 중이던 이전 코드가 새 코드를 덮어쓰지 않도록
+                EmailIssueResult result = EmailIssueResult.of(execute(() -> emailCodeRepository.issue(email, ip, digest, mailCodeExp)));
+                if(result!=EmailIssueResult.ISSUED) log.warn("[RedisService/issueEmailCode] "+result+". email : "+email+", ip : "+ip);
+                return result;
+            }catch (CustomException e){
+                log.warn("[RedisService/issueEmailCode] redis unavailable. queue email code : "+email);
+            }
+        }
+        if(pendingEmailCodes.size()>=pendingEmailCodeLimit && !pendingEmailCodes.containsKey(email)) {
+            throw new CustomException(ResponseStatus.DATABASE_ERROR);
+        }
+        long now = System.currentTimeMillis();
+        AtomicBoolean limited = new AtomicBoolean();
+        pendingEmailCodes.compute(email, (key, previous) -> {
+            boolean sameWindow = previous!=null && now-previous.getWindowStart() < emailIssueWindow*1000;
+            int issues = sameWindow ? previous.getIssues()+1 : 1;
+            if(issues>emailIssueLimit) {
+                limited.set(true);
+                return previous;
+            }
+            return new PendingEmailCode(digest, now+mailCodeExp*1000, issues, sameWindow ? previous.getWindowStart() : now);
+        });
+        if(limited.get()) {
+            log.warn("[RedisService/issueEmailCode] EMAIL_LIMITED while degraded. email : "+email);
+            return EmailIssueResult.EMAIL_LIMITED;
+        }
+        return EmailIssueResult.ISSUED;
+    }
+
+    /**
+     * 해당 이메일의 인증코드를 검증하고, 일치하면 삭제합니다. (한 코드는 한 번만 성공)
+     * 아직 redis에 기록되지 못하고 대기 중인 인증코드가 있으면 그 값으로 검증합니다.
+     *
+     * @param email 이메일
+     * @param code 요청한 인증코드
+     * @return 검증 결과
+     */
+    public EmailCheckResult consumeEmailCode(String email, String code){
+        String digest = JwtUtils.digest(code);
+        PendingEmailCode pending = pendingEmailCodes.get(email);
+        if(pending!=null && pending.getRemainingSeconds()>0) {
+            if(pending.getAttempts().get()>=emailAttemptLimit) return EmailCheckResult.LOCKED;
+            if(pending.getCodeDigest().equals(digest) && pendingEmailCodes.remove(email, pending)) return EmailCheckResult.VALID;
+            pending.getAttempts().incrementAndGet();
+            return EmailCheckResult.MISMATCH;
+        }
+        return EmailCheckResult.of(execute(() -> emailCodeRepository.consume(email, digest)));
+    }
+
+    /**
+     * degraded mode 동안 보관한 인증코드를 redis에 기록합니다.
+     * 남은 만료시간만큼만 기록하고, 이미 만료된 코드는 버립니다.
+     * 이미 메일로 보낸 코드이므로 발급 제한으로 버리지 않습니다.
+     */
+    @Scheduled(fixedDelayString = "${redis.degraded.flush-interval:1000}")
+    public void flushEmailCodes(){
+        if(pendingEmailCodes.isEmpty() || isDegraded()) return;
+        for (Map.Entry<String, PendingEmailCode> entry : pendingEmailCodes.entrySet()) {
+            String email = entry.getKey();
+            PendingEmailCode pending = entry.getValue();
+            // redis에 기록하기 전에 먼저 빼서, 그 사이의 검증이 서버와 redis에서 두 번 성공하지 않도록
+            if(!pendingEmailCodes.remove(email, pending)) continue;
+            if(pending.getRemainingSeconds()<=0) continue;
+            try {
+                run(() -> emailCodeRepository.restore(email, pending.getCodeDigest(), pending.getExpiresAt()/1000,
+                        pending.getAttempts().get(), pending.getIssues()));
+            }catch (CustomException e){
+                pendingEmailCodes.putIfAbsent(email, pending); // 그 사이 새로 발급된 코드가 있으면 그 코드를 남김
+                return; // 다음 주기에 다시 시도
+            }
+        }
+        log.info("[RedisService/flushEmailCodes] pending email codes : "+pendingEmailCodes.size());
+    }
+
+    /**
+     * redis circuit breaker가 열려 있는지(degraded mode) 여부
+     * 열려 있는 동안 redis 명령은 기다리지 않고 바로 DATABASE_ERROR로 실패합니다.
+     */
+    public boolean isDegraded(){
+        CircuitBreaker.State state = redisCircuitBreaker.getState();
+        return state==CircuitBreaker.State.OPEN || state==CircuitBreaker.State.FORCED_OPEN;
     }
 
 
@@ -96,12 +313,10 @@ public class RedisService {
      * @return 조회된 value 값
      */
     public String getData(String key){
-        try {
+        return execute(() -> {
             ValueOperations<String,String> valueOperations = stringRedisTemplate.opsForValue();
             return valueOperations.get(key);
-        }catch (Exception e){
-            throw new CustomException(ResponseStatus.DATABASE_ERROR);
-        }
+        });
     }
 
     /**
@@ -111,12 +326,10 @@ public class RedisService {
      * @param value value
      */
     public void setData(String key, String value){
-        try {
+        run(() -> {
             ValueOperations<String,String> valueOperations = stringRedisTemplate.opsForValue();
             valueOperations.set(key,value);
-        }catch (Exception e){
-            throw new CustomException(ResponseStatus.DATABASE_ERROR);
-        }
+        });
     }
 
     /**
@@ -128,13 +341,11 @@ public class RedisService {
      * @param duration 만료시간 (초)
      */
     public void setDataExpire(String key,String value,long duration){
-        try {
+        run(() -> {
             ValueOperations<String,String> valueOperations = stringRedisTemplate.opsForValue();
             Duration expireDuration = Duration.ofSeconds(duration);
             valueOperations.set(key,value,expireDuration);
-        }catch (Exception e){
-            throw new CustomException(ResponseStatus.DATABASE_ERROR);
-        }
+        });
     }
 
     /**
@@ -143,10 +354,109 @@ public class RedisService {
      * @param key key
      */
     public void deleteData(String key){
+        run(() -> stringRedisTemplate.delete(key));
+    }
+
+    /**
+     * circuit breaker를 거쳐 redis 명령을 실행합니다.
+     * 명령 실패, timeout, circuit breaker가 열려 있어 거부된 경우 모두 DATABASE_ERROR로 변환합니다.
+     */
+    private <T> T execute(Supplier<T> command){
         try {
-            stringRedisTemplate.delete(key);
+            return redisCircuitBreaker.executeSupplier(command);
+        }catch (CallNotPermittedException e){
+            throw new CustomException(ResponseStatus.DATABASE_ERROR);
         }catch (Exception e){
+            log.error("[RedisService] redis command failed : "+e.getMessage());
             throw new CustomException(ResponseStatus.DATABASE_ERROR);
         }
     }
-}
\ No newline at end of file
+
+    private void run(Runnable command){
+        execute(() -> {
+            command.run();
+            return null;
+        });
+    }
+
+    /**
+     * refresh token 교체(rotateRefreshToken) 결과
+     */
+    public enum RotationResult {
+        NOT_FOUND,  // 저장된 세션이 없음
+        ROTATED,    // 교체 성공
+        COALESCED,  // 같은 token으로 먼저 들어온 요청이 교체에 성공 (먼저 재발급된 token 사용)
+        MISMATCH,   // 저장된 세션과 다른 token
+        LEGACY,     // 이전 방식으로 저장된 값 (변환 필요)
+        REUSED;     // 이미 교체된 token을 재사용 (세션 삭제됨)
+
+        private static RotationResult of(String code) {
+            if (code == null) return NOT_FOUND;
+            switch (code) {
+                case "1": return ROTATED;
+                case "2": return MISMATCH;
+                case "3": return LEGACY;
+                case "4": return COALESCED;
+                case "-1": return REUSED;
+                default: return NOT_FOUND;
+            }
+        }
+    }
+
+    /**
+     * 인증코드 발급(issueEmailCode) 결과
+     */
+    public enum EmailIssueResult {
+        ISSUED,         // 발급 성공
+        EMAIL_LIMITED,  // 이메일별 발급 횟수 초과
+        IP_LIMITED;     // ip별 발급 요청 수 초과
+
+        private static EmailIssueResult of(long code) {
+            if (code == EmailCodeRepository.EMAIL_LIMITED) return EMAIL_LIMITED;
+            if (code == EmailCodeRepository.IP_LIMITED) return IP_LIMITED;
+            return ISSUED;
+        }
+    }
+
+    /**
+     * 인증코드 검증(consumeEmailCode) 결과
+     */
+    public enum EmailCheckResult {
+        NOT_FOUND,  // 발급된 코드가 없거나 만료됨, 이미 사용됨
+        VALID,      // 일치 (코드 삭제됨)
+        MISMATCH,   // 불일치
+        LOCKED;     // 검증 실패 횟수 초과 (새로 발급 필요)
+
+        private static EmailCheckResult of(long code) {
+            if (code == EmailCodeRepository.VALID) return VALID;
+            if (code == EmailCodeRepository.MISMATCH) return MISMATCH;
+            if (code == EmailCodeRepository.LOCKED) return LOCKED;
+            return NOT_FOUND;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class PendingEmailCode {
+        private final String codeDigest;
+        private final long expiresAt; // epoch millis
+        private final int issues; // 발급 window 안에서 이 서버가 발급한 횟수
+        private final long windowStart; // epoch millis
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private long getRemainingSeconds() {
+            return (expiresAt - System.currentTimeMillis()) / 1000;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Rotation {
+        private final RotationResult result;
+        private final TokenDto token; // ROTATED, COALESCED 일 때 요청자에게 내려줄 token
+
+        public boolean isSuccess() {
+            return result==RotationResult.ROTATED || result==RotationResult.COALESCED;
+        }
+    }
+}
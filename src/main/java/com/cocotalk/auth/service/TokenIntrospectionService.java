@@ -0,0 +1,117 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.dto.common.payload.TokenPayload;
+import com.cocotalk.auth.dto.common.response.Response;
+import com.cocotalk.auth.dto.token.introspect.IntrospectInput;
+import com.cocotalk.auth.dto.token.introspect.IntrospectOutput;
+import com.cocotalk.auth.utils.JwtUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.cocotalk.auth.dto.common.response.ResponseStatus.SUCCESS;
+
+/**
+ *
+ * gateway가 여러 token을 한 번에 검증할 수 있도록 하는 서비스
+ * 검증 결과는 token digest를 key로 메모리에 캐싱하며,
+ * 유효한 token의 결과는 token 만료 시각을 넘겨서 보관하지 않습니다.
+ *
+ */
+@Slf4j
+@Service
+public class TokenIntrospectionService {
+
+    private static final IntrospectOutput INACTIVE = IntrospectOutput.builder().active(false).build();
+
+    private final Cache<String, IntrospectOutput> cache;
+
+    public TokenIntrospectionService(@Value("${jwt.introspect.cache.max-size:100000}") long maxSize,
+                                     @Value("${jwt.introspect.cache.ttl:300}") long ttl,
+                                     @Value("${jwt.introspect.cache.negative-ttl:30}") long negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new IntrospectExpiry(TimeUnit.SECONDS.toNanos(ttl), TimeUnit.SECONDS.toNanos(negativeTtl)))
+                .build();
+    }
+
+    /**
+     * 요청 순서대로 각 token의 유효 여부와 userId, 기기 정보(FCM Token)를 반환합니다.
+     *
+     * @param introspectInput 검증할 token 목록
+     * @return token별 검증 결과
+     */
+    public ResponseEntity<Response<List<IntrospectOutput>>> introspect(IntrospectInput introspectInput) {
+        List<IntrospectOutput> results = new ArrayList<>(introspectInput.getTokens().size());
+        for (String token : introspectInput.getTokens()) {
+            results.add(introspect(token));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(new Response<>(results, SUCCESS));
+    }
+
+    /**
+     * token 하나를 검증합니다. 같은 token의 검증 결과가 캐시에 있으면 재사용합니다.
+     *
+     * @param token 검증할 token
+     * @return 검증 결과
+     */
+    public IntrospectOutput introspect(String token) {
+        return cache.get(JwtUtils.digest(token), digest -> verify(token));
+    }
+
+    private IntrospectOutput verify(String token) {
+        try {
+            TokenPayload payload = JwtUtils.getPayload(token);
+            return IntrospectOutput.builder()
+                    .active(true)
+                    .userId(payload.getUserId())
+                    .fcmToken(payload.getFcmToken())
+                    .expirationDate(LocalDateTime.ofInstant(payload.getExpiration().toInstant(), ZoneId.systemDefault()))
+                    .build();
+        } catch (Exception e) {
+            log.info("[introspect] invalid token : " + e.getMessage());
+            return INACTIVE;
+        }
+    }
+
+    /**
+     * 유효한 token은 min(만료까지 남은 시간, ttl), 유효하지 않은 token은 negativeTtl 동안 캐싱
+     */
+    private static class IntrospectExpiry implements Expiry<String, IntrospectOutput> {
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private IntrospectExpiry(long ttlNanos, long negativeTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, IntrospectOutput value, long currentTime) {
+            if (!value.getActive()) return negativeTtlNanos;
+            long remainMillis = value.getExpirationDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - System.currentTimeMillis();
+            return Math.max(0, Math.min(ttlNanos, TimeUnit.MILLISECONDS.toNanos(remainMillis)));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, IntrospectOutput value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, IntrospectOutput value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
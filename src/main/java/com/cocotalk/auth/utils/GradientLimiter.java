@@ -0,0 +1,100 @@
+package com.cocotalk.auth.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 응답 시간으로 동시 처리 한도를 조정하는 limiter (gradient 방식)
+ *
+ * 최근 응답 시간(short)이 평소 응답 시간(long)보다 길어지면 대기가 쌓이고 있는 것으로 보고 한도를 줄이고,
+ * 비슷하면 한도를 조금씩(sqrt(limit) 만큼의 여유) 늘립니다.
+ *   newLimit = limit * clamp(long / short, 0.5, 1.0) + sqrt(limit)
+ * 처리 중인 요청이 한도의 절반도 안 되면 부하가 낮아 측정값을 믿기 어려우므로 한도를 늘리지 않습니다.
+ *
+ * 응답 시간은 lane(요청 종류)별로 따로 평균을 냅니다. 평소 응답 시간이 다른 요청을 섞으면
+ * 느린 요청의 비율만 늘어도 대기가 쌓인 것처럼 보이므로, 각 lane의 응답은 같은 lane의 평소 값과 비교합니다.
+ *
+ * 요청마다 우선순위별 비율(share)을 받아, 한도 * share 까지만 받습니다.
+ * 낮은 비율의 요청은 먼저 거절되고, 남은 여유는 높은 비율의 요청이 사용합니다.
+ *
+ */
+public class GradientLimiter {
+    private static final double LONG_RTT_SMOOTHING = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double limit;
+    private final double[] shortRtt; // lane별 최근 응답 시간 (ns, 빠르게 따라가는 평균)
+    private final double[] longRtt;  // lane별 평소 응답 시간 (ns, 천천히 따라가는 평균)
+
+    /**
+     * @param initialLimit 시작 한도
+     * @param minLimit 최소 한도
+     * @param maxLimit 최대 한도
+     * @param smoothing 한도 변경 시 새 값의 반영 비율 (0~1)
+     * @param lanes 응답 시간을 따로 평균 낼 lane 수
+     */
+    public GradientLimiter(int initialLimit, int minLimit, int maxLimit, double smoothing, int lanes) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.shortRtt = new double[lanes];
+        this.longRtt = new double[lanes];
+    }
+
+    /**
+     * 한도 * share 안이면 요청을 받습니다.
+     *
+     * @param share 요청의 우선순위 비율 (0~1)
+     * @return 받았으면 release에 넘길 시작 시각 (System.nanoTime()), 거절이면 -1
+     */
+    public long tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) return -1;
+            if (inflight.compareAndSet(current, current + 1)) return System.nanoTime();
+        }
+    }
+
+    /**
+     * 처리가 끝난 요청의 응답 시간을 반영하고 자리를 돌려줍니다.
+     *
+     * @param startNanos tryAcquire가 반환한 시작 시각
+     * @param lane 요청의 lane (0 ~ lanes-1)
+     */
+    public void release(long startNanos, int lane) {
+        long rtt = System.nanoTime() - startNanos;
+        int current = inflight.getAndDecrement();
+        update(rtt, current, lane);
+    }
+
+    private synchronized void update(long rtt, int inflightAtRelease, int lane) {
+        if (longRtt[lane] == 0) {
+            shortRtt[lane] = rtt;
+            longRtt[lane] = rtt;
+            return;
+        }
+        shortRtt[lane] = shortRtt[lane] * 0.9 + rtt * 0.1;
+        longRtt[lane] = longRtt[lane] * (1 - LONG_RTT_SMOOTHING) + rtt * LONG_RTT_SMOOTHING;
+        // 부하가 줄어 응답이 빨라진 뒤에도 평소 값이 높게 남지 않도록
+        if (longRtt[lane] > shortRtt[lane] * 2) longRtt[lane] = shortRtt[lane] * 2;
+
+        double gradient = Math.max(0.5, Math.min(1.0, longRtt[lane] / shortRtt[lane]));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        if (newLimit > limit && inflightAtRelease < limit / 2) return;
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
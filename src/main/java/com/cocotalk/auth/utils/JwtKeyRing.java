@@ -0,0 +1,243 @@
+package com.cocotalk.auth.utils;
+
+import io.jsonwebtoken.*;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.bind.DatatypeConverter;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *
+ * JWT 서명/검증에 사용하는 key ring
+ * secret은 로딩 시점에 한 번만 디코딩하고, 서명 key와 parser를 미리 만들어 재사용합니다.
+ * 토큰 header의 kid로 검증 key를 찾기 때문에 서버 재시작 없이 key를 교체할 수 있습니다.
+ *
+ * jwt.algorithm : 새로 발급하는 토큰의 서명 알고리즘 (HS256 or ES256, 기본값 HS256)
+ * jwt.kid : 새로 발급하는 토큰의 kid
+ * jwt.secret : HS256 secret (ES256 모드에서는 kid가 없거나 default인 이전 토큰 검증에만 사용)
+ * jwt.legacy-retired : true면 jwt.secret을 default kid로 등록하지 않음 (이전 토큰이 모두 만료된 뒤 설정)
+ * jwt.ec.private-key, jwt.ec.public-key : ES256 key pair (PKCS#8, X.509 base64)
+ * jwt.retired : 검증에만 사용하는 이전 HS256 key 목록 (kid:secret,kid:secret)
+ * jwt.ec.retired : 검증에만 사용하는 이전 ES256 공개키 목록 (kid:public-key,kid:public-key)
+ *
+ * 한 kid에 HS256 key와 ES256 key가 함께 설정되면 어느 토큰이 검증되지 않을지 알 수 없으므로 로딩에 실패합니다.
+ * (예: ES256으로 바꾸면서 jwt.kid=default를 유지한 경우)
+ *
+ */
+@Slf4j
+@Component
+public class JwtKeyRing {
+    private static final String DEFAULT_KID = "default";
+    private static final int EC_COORDINATE_LENGTH = 32; // P-256
+
+    private final Environment environment;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    public JwtKeyRing(Environment environment) {
+        this.environment = environment;
+        reload();
+    }
+
+    /**
+     * /actuator/refresh 등으로 jwt.* 설정이 바뀌면 key ring을 다시 구성합니다.
+     * 이전 key는 jwt.retired, jwt.ec.retired에 남겨두면 이미 발급된 토큰도 만료될 때까지 검증됩니다.
+     */
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().anyMatch(key -> key.startsWith("jwt."))) {
+            reload();
+        }
+    }
+
+    /**
+     * 설정값으로 key ring을 다시 만듭니다.
+     * 새 snapshot으로 한 번에 교체하므로 요청 처리 중인 thread는 lock 없이 이전/새 key ring 중 하나를 보게 됩니다.
+     */
+    public void reload() {
+        SignatureAlgorithm algorithm = SignatureAlgorithm.forName(environment.getProperty("jwt.algorithm", "HS256"));
+        String activeKid = environment.getProperty("jwt.kid", DEFAULT_KID);
+        String secret = environment.getProperty("jwt.secret");
+
+        Map<String, Key> keys = new HashMap<>();
+        Map<String, ECPublicKey> retiredPublicKeys = new LinkedHashMap<>();
+        parseEntries(environment.getProperty("jwt.retired", ""))
+                .forEach((kid, value) -> keys.put(kid, toHmacKey(value)));
+        parseEntries(environment.getProperty("jwt.ec.retired", ""))
+                .forEach((kid, value) -> retiredPublicKeys.put(kid, toPublicKey(value)));
+
+        Key legacyKey = secret == null ? null : toHmacKey(secret);
+        Key signingKey;
+        Map<String, ECPublicKey> publicKeys = new LinkedHashMap<>();
+        if (algorithm == SignatureAlgorithm.HS256) {
+            if (legacyKey == null) throw new IllegalStateException("jwt.secret is required for HS256");
+            signingKey = legacyKey;
+            keys.put(activeKid, legacyKey);
+        } else if (algorithm == SignatureAlgorithm.ES256) {
+            signingKey = toPrivateKey(environment.getRequiredProperty("jwt.ec.private-key"));
+            publicKeys.put(activeKid, toPublicKey(environment.getRequiredProperty("jwt.ec.public-key")));
+        } else {
+            throw new IllegalStateException("jwt.algorithm must be HS256 or ES256 : " + algorithm);
+        }
+        // kid 도입 이후 HS256으로 발급된 token(kid=default)은 명시적으로 폐기하기 전까지 검증
+        if (legacyKey != null && !environment.getProperty("jwt.legacy-retired", Boolean.class, false)) {
+            keys.putIfAbsent(DEFAULT_KID, legacyKey);
+        }
+        retiredPublicKeys.forEach(publicKeys::putIfAbsent);
+        Set<String> collisions = new TreeSet<>(publicKeys.keySet());
+        collisions.retainAll(keys.keySet());
+        if (!collisions.isEmpty()) {
+            throw new IllegalStateException("jwt kids are used by both HS256 and ES256 keys : " + collisions);
+        }
+        keys.putAll(publicKeys);
+
+        snapshot.set(new Snapshot(activeKid, algorithm, signingKey, legacyKey, keys, toJwks(publicKeys)));
+        log.info("[JwtKeyRing/reload] " + algorithm + " active kid : " + activeKid + ", verification kids : " + keys.keySet());
+    }
+
+    /**
+     * 현재 활성화된 key로 kid header를 붙여 서명합니다.
+     *
+     * @param builder header와 서명을 제외한 claim이 채워진 builder
+     * @return 서명된 token
+     */
+    public String sign(JwtBuilder builder) {
+        Snapshot current = snapshot.get();
+        return builder.setHeaderParam(JwsHeader.KEY_ID, current.activeKid)
+                .signWith(current.signingKey, current.algorithm)
+                .compact();
+    }
+
+    /**
+     * kid에 맞는 key로 token을 검증하고 claim을 반환합니다.
+     *
+     * @param token 검증할 token
+     * @return 검증된 token의 claim
+     */
+    public Claims parse(String token) {
+        return snapshot.get().parser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * 다른 서비스가 token을 직접 검증할 수 있도록 공개키 목록을 JWK Set 형태로 반환합니다.
+     * HS256 key는 공개할 수 없으므로 포함되지 않습니다.
+     *
+     * @return JWK Set (RFC 7517)
+     */
+    public Map<String, Object> getJwks() {
+        return snapshot.get().jwks;
+    }
+
+    public String getActiveKid() {
+        return snapshot.get().activeKid;
+    }
+
+    private static Map<String, String> parseEntries(String entries) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String entry : entries.split(",")) {
+            if (entry.isBlank()) continue;
+            String[] kidAndValue = entry.trim().split(":", 2);
+            if (kidAndValue.length != 2) {
+                throw new IllegalStateException("retired jwt keys must be formatted as kid:key");
+            }
+            result.put(kidAndValue[0], kidAndValue[1]);
+        }
+        return result;
+    }
+
+    private static Key toHmacKey(String secret) {
+        byte[] secretKeyBytes = DatatypeConverter.parseBase64Binary(secret);
+        return new SecretKeySpec(secretKeyBytes, SignatureAlgorithm.HS256.getJcaName());
+    }
+
+    private static Key toPrivateKey(String encoded) {
+        try {
+            byte[] keyBytes = DatatypeConverter.parseBase64Binary(encoded);
+            return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(keyBytes));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("invalid jwt.ec.private-key", e);
+        }
+    }
+
+    private static ECPublicKey toPublicKey(String encoded) {
+        try {
+            byte[] keyBytes = DatatypeConverter.parseBase64Binary(encoded);
+            return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(keyBytes));
+        } catch (GeneralSecurityException | ClassCastException e) {
+            throw new IllegalStateException("invalid ES256 public key", e);
+        }
+    }
+
+    private static Map<String, Object> toJwks(Map<String, ECPublicKey> publicKeys) {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        publicKeys.forEach((kid, publicKey) -> {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("use", "sig");
+            jwk.put("alg", SignatureAlgorithm.ES256.getValue());
+            jwk.put("kid", kid);
+            jwk.put("x", toCoordinate(publicKey.getW().getAffineX()));
+            jwk.put("y", toCoordinate(publicKey.getW().getAffineY()));
+            jwks.add(Collections.unmodifiableMap(jwk));
+        });
+        return Collections.singletonMap("keys", Collections.unmodifiableList(jwks));
+    }
+
+    private static String toCoordinate(BigInteger value) {
+        // BigInteger는 부호 byte가 붙거나 앞의 0이 생략될 수 있으므로 고정 길이로 맞춤
+        byte[] bytes = value.toByteArray();
+        byte[] coordinate = new byte[EC_COORDINATE_LENGTH];
+        int length = Math.min(bytes.length, EC_COORDINATE_LENGTH);
+        System.arraycopy(bytes, bytes.length - length, coordinate, EC_COORDINATE_LENGTH - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(coordinate);
+    }
+
+    private static final class Snapshot {
+        private final String activeKid;
+        private final SignatureAlgorithm algorithm;
+        private final Key signingKey;
+        private final Key legacyKey;
+        private final Map<String, Key> keys;
+        private final Map<String, Object> jwks;
+        private final JwtParser parser;
+
+        private Snapshot(String activeKid, SignatureAlgorithm algorithm, Key signingKey, Key legacyKey,
+                         Map<String, Key> keys, Map<String, Object> jwks) {
+            this.activeKid = activeKid;
+            this.algorithm = algorithm;
+            this.signingKey = signingKey;
+            this.legacyKey = legacyKey;
+            this.keys = Collections.unmodifiableMap(keys);
+            this.jwks = jwks;
+            this.parser = Jwts.parserBuilder()
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        @Override
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            return resolve(header.getKeyId());
+                        }
+                    })
+                    .build();
+        }
+
+        private Key resolve(String kid) {
+            // kid 도입 이전에 발급된 token은 jwt.secret으로 검증
+            Key key = kid == null ? legacyKey : keys.get(kid);
+            if (key == null) throw new SignatureException("Unknown signing key id : " + kid);
+            return key;
+        }
+    }
+}
@@ -5,35 +5,57 @@ import com.cocotalk.auth.dto.common.payload.TokenPayload;
 import com.cocotalk.auth.dto.common.response.ResponseStatus;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import javax.servlet.http.HttpServletRequest;
-import javax.xml.bind.DatatypeConverter;
-import java.security.Key;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
 
 @RequiredArgsConstructor
 @Slf4j
 @Component
 public class JwtUtils {
-    private static String jwtSecret;
+    private static JwtKeyRing keyRing;
     private static long accessTokenExp;
     private static long refreshTokenExp;
 
+    private static int tokenVersion;
+
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    @Value("${jwt.secret}")
-    public void setJwtSecret(String secret) {
-        jwtSecret = secret;
-    }
+    /*
+     version 2 (compact) token claim
+     version claim이 없는 token은 payload를 JSON으로 subject에 담은 version 1 token
+     */
+    private static final String VERSION = "ver";
+    private static final String USER_ID = "uid";
+    private static final String DEVICE = "dev";
+    private static final int COMPACT_VERSION = 2;
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private static final String SEAL_CIPHER = "AES/GCM/NoPadding";
+    private static final String SEAL_CONTEXT = "cocotalk-token-seal";
+    private static final int SEAL_IV_LENGTH = 12;
+    private static final int SEAL_TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     @Value("${jwt.token.exp.access}")
     public void setAccessTokenExp(long exp) {
@@ -45,75 +67,185 @@ public class JwtUtils {
         refreshTokenExp = exp;
     }
 
+    /**
+     * 발급할 token 형식 (1 : subject에 JSON payload, 2 : uid/dev claim)
+     * version 2를 읽지 못하는 이전 서버와 함께 운영하는 동안에는 1로 설정합니다.
+     */
+    @Value("${jwt.token.version:2}")
+    public void setTokenVersion(int version) {
+        tokenVersion = version;
+    }
+
+    @Autowired
+    public void setKeyRing(JwtKeyRing jwtKeyRing) {
+        keyRing = jwtKeyRing;
+    }
+
     public static String createAccessToken(long userId, String fcmToken) {
-        TokenPayload tokenPayload = TokenPayload.builder()
-                .userId(userId)
-                .fcmToken(fcmToken)
-                .build();
-        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
-        byte[] secretKeyBytes = DatatypeConverter.parseBase64Binary(jwtSecret);
-        Key signingKey = new SecretKeySpec(secretKeyBytes, signatureAlgorithm.getJcaName());
-        Date now = new Date();
-        String token = null;
-        try {
-            token = Jwts.builder()
-                    .setSubject(objectMapper.writeValueAsString(tokenPayload))
-                    .setIssuedAt(now)
-                    .setExpiration(new Date(now.getTime() + accessTokenExp * 1000))
-//                    .setExpiration(new Date(now.getTime() + 30 * 1000))
-                    .signWith(signingKey, signatureAlgorithm)
-                    .compact();
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-        }
-        return token;
+        return createToken(userId, fcmToken, accessTokenExp, null);
     }
 
     public static String createRefreshToken(long userId, String fcmToken) {
+        return createToken(userId, fcmToken, refreshTokenExp, newTokenId());
+    }
+
+    private static String createToken(long userId, String fcmToken, long exp, String tokenId) {
+        Date now = new Date();
+        JwtBuilder builder = Jwts.builder()
+                .setId(tokenId)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + exp * 1000));
+        if (tokenVersion >= COMPACT_VERSION) {
+            builder.claim(VERSION, COMPACT_VERSION)
+                    .claim(USER_ID, userId)
+                    .claim(DEVICE, fcmToken);
+            return keyRing.sign(builder);
+        }
+
         TokenPayload tokenPayload = TokenPayload.builder()
                 .userId(userId)
                 .fcmToken(fcmToken)
                 .build();
-        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
-        byte[] secretKeyBytes = DatatypeConverter.parseBase64Binary(jwtSecret);
-        Key signingKey = new SecretKeySpec(secretKeyBytes, signatureAlgorithm.getJcaName());
-        Date now = new Date();
         String token = null;
         try {
-            token = Jwts.builder()
-                    .setSubject(objectMapper.writeValueAsString(tokenPayload))
-                    .setIssuedAt(now)
-                    .setExpiration(new Date(now.getTime() + refreshTokenExp * 1000))
-                    .signWith(signingKey, signatureAlgorithm)
-                    .compact();
+            token = keyRing.sign(builder.setSubject(objectMapper.writeValueAsString(tokenPayload)));
         } catch (JsonProcessingException e) {
             e.printStackTrace();
         }
         return token;
     }
 
-    public static String getAccessToken() {
-        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
-        return request.getHeader("X-ACCESS-TOKEN");
+    public static TokenPayload getPayload(String token) {
+        Claims claims = keyRing.parse(token);
+        try {
+            return toPayload(claims);
+        } catch (JacksonException e) {
+            throw new CustomException(ResponseStatus.UNAUTHORIZED, e);
+        }
     }
 
-    public static String getRefreshToken() {
-        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
-        return request.getHeader("X-REFRESH-TOKEN");
+    /**
+     * token 검증에 사용할 수 있는 공개키 목록 (JWK Set)
+     *
+     * @return JWK Set
+     */
+    public static Map<String, Object> getJwks() {
+        return keyRing.getJwks();
     }
 
-    public static TokenPayload getPayload(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(DatatypeConverter.parseBase64Binary(jwtSecret))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * 서명 검증 없이 token의 payload만 꺼냅니다.
+     * redis에 기록된 token처럼 이 서버가 발급해 보관 중인 token에만 사용해야 합니다.
+     *
+     * @param token payload를 꺼낼 token
+     * @return token의 payload
+     */
+    public static TokenPayload getUnverifiedPayload(String token) {
         try {
-            TokenPayload payload = objectMapper.readValue(claims.getSubject(), TokenPayload.class);
-            return payload;
-        } catch (JacksonException e) {
+            String[] parts = token.split("\\.");
+            byte[] body = Base64.getUrlDecoder().decode(parts[1]);
+            return toPayload(objectMapper.readValue(body, MAP_TYPE));
+        } catch (Exception e) {
             throw new CustomException(ResponseStatus.UNAUTHORIZED, e);
         }
     }
 
+    /**
+     * claim을 TokenPayload로 변환합니다.
+     * version claim이 없으면 subject의 JSON을 읽는 이전 형식으로 처리합니다.
+     */
+    private static TokenPayload toPayload(Map<String, Object> claims) throws JacksonException {
+        TokenPayload payload;
+        if (claims.get(VERSION) == null) {
+            payload = objectMapper.readValue((String) claims.get(Claims.SUBJECT), TokenPayload.class);
+        } else {
+            Number userId = (Number) claims.get(USER_ID);
+            payload = TokenPayload.builder()
+                    .userId(userId == null ? null : userId.longValue())
+                    .fcmToken((String) claims.get(DEVICE))
+                    .build();
+        }
+        payload.setTokenId((String) claims.get(Claims.ID));
+        payload.setIssuedAt(toDate(claims.get(Claims.ISSUED_AT)));
+        payload.setExpiration(toDate(claims.get(Claims.EXPIRATION)));
+        return payload;
+    }
+
+    private static Date toDate(Object value) {
+        if (value instanceof Date) return (Date) value;
+        if (value instanceof Number) return new Date(((Number) value).longValue() * 1000);
+        return null;
+    }
+
+    /**
+     * refresh token id (jti)
+     * UUID(128bit)를 base64url로 인코딩한 22자리 문자열
+     */
+    private static String newTokenId() {
+        UUID uuid = UUID.randomUUID();
+        ByteBuffer buffer = ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * token의 SHA-256 digest (base64url)
+     * token 원문 대신 cache key나 저장 값으로 사용합니다.
+     *
+     * @param token digest를 구할 token
+     * @return digest
+     */
+    public static String digest(String token) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(DigestUtils.sha256(token));
+    }
+
+    /**
+     * token에서 만든 key로 값을 암호화합니다. (AES-256-GCM, base64url(iv + 암호문))
+     * key는 HMAC-SHA256(token, SEAL_CONTEXT)이므로 저장된 digest만으로는 만들 수 없고, token 원문을 가진 요청만 복호화할 수 있습니다.
+     *
+     * @param token key를 만들 token
+     * @param value 암호화할 값
+     * @return 암호화된 값
+     */
+    public static String seal(String token, String value) {
+        try {
+            byte[] iv = new byte[SEAL_IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(SEAL_CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, sealKey(token), new GCMParameterSpec(SEAL_TAG_BITS, iv));
+            byte[] encrypted = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = new byte[iv.length + encrypted.length];
+            System.arraycopy(iv, 0, sealed, 0, iv.length);
+            System.arraycopy(encrypted, 0, sealed, iv.length, encrypted.length);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(sealed);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("failed to seal value", e);
+        }
+    }
+
+    /**
+     * seal로 암호화한 값을 복호화합니다.
+     *
+     * @param token 암호화에 사용한 token
+     * @param sealed 암호화된 값
+     * @return 복호화한 값, token이 다르거나 값이 변조되었으면 null
+     */
+    public static String unseal(String token, String sealed) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(sealed);
+            if (bytes.length <= SEAL_IV_LENGTH) return null;
+            Cipher cipher = Cipher.getInstance(SEAL_CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, sealKey(token), new GCMParameterSpec(SEAL_TAG_BITS, bytes, 0, SEAL_IV_LENGTH));
+            return new String(cipher.doFinal(bytes, SEAL_IV_LENGTH, bytes.length - SEAL_IV_LENGTH), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static SecretKeySpec sealKey(String token) {
+        byte[] key = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, token.getBytes(StandardCharsets.UTF_8)).hmac(SEAL_CONTEXT);
+        return new SecretKeySpec(key, "AES");
+    }
+
 }
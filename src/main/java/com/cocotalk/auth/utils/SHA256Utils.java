@@ -1,65 +1,81 @@
 package com.cocotalk.auth.utils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Random;
 
 /**
  * SHA-256 암호화
  *
+ * MessageDigest는 thread-safe 하지 않으므로 thread마다 하나씩 만들어 재사용하고,
+ * 원본과 salt는 UTF-8로 변환해 순서대로 digest에 넣습니다. (원본 + salt를 이어붙인 것과 같은 결과)
+ *
  * @author Minchang Jang
  *
  */
 @Slf4j
 @Component
 public class SHA256Utils {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    });
 
-    private static String salt;
+    private static byte[] saltBytes;
 
     @Value("${sha256.salt}")
     public void setSalt(String saltKey) {
-        salt = saltKey;
+        saltBytes = saltKey.getBytes(StandardCharsets.UTF_8);
     }
 
     /**
      * SHA-256 암호화 함
      * @param source 원본
-     * @return
+     * @return 소문자 hex 문자열 (64자)
      */
     public static String getEncrypt(String source) {
-
-        byte[] saltBytes = salt.getBytes();
-        String result = "";
-
-        byte[] a = source.getBytes();
-        byte[] bytes = new byte[a.length + saltBytes.length];
-
-        System.arraycopy(a, 0, bytes, 0, a.length);
-        System.arraycopy(saltBytes, 0, bytes, a.length, saltBytes.length);
-
-        try {
-            // 암호화 방식 지정 메소드
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(bytes);
-
-            byte[] byteData = md.digest();
-
-            StringBuffer sb = new StringBuffer();
-            for (int i = 0; i < byteData.length; i++) {
-                sb.append(Integer.toString((byteData[i] & 0xFF) + 256, 16).substring(1));
-            }
-
-            result = sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
+        byte[] digest = digest(source);
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xF];
         }
+        return new String(hex);
+    }
 
-        return result;
+    /**
+     * 원본의 암호화 결과가 저장된 값과 같은지 비교합니다.
+     * 비교 시간이 일치하는 앞부분 길이에 따라 달라지지 않도록 모든 문자를 비교합니다.
+     *
+     * @param source 원본
+     * @param encrypted 저장된 암호화 결과 (getEncrypt의 결과)
+     * @return 일치 여부
+     */
+    public static boolean matches(String source, String encrypted) {
+        if (source == null || encrypted == null) return false;
+        byte[] digest = digest(source);
+        if (encrypted.length() != digest.length * 2) return false;
+        int diff = 0;
+        for (int i = 0; i < digest.length; i++) {
+            diff |= encrypted.charAt(i * 2) ^ HEX[(digest[i] >> 4) & 0xF];
+            diff |= encrypted.charAt(i * 2 + 1) ^ HEX[digest[i] & 0xF];
+        }
+        return diff == 0;
     }
 
-}
\ No newline at end of file
+    private static byte[] digest(String source) {
+        MessageDigest md = DIGEST.get();
+        md.reset();
+        md.update(source.getBytes(StandardCharsets.UTF_8));
+        md.update(saltBytes);
+        return md.digest();
+    }
+}
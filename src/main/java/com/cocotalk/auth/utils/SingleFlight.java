@@ -0,0 +1,45 @@
+package com.cocotalk.auth.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ *
+ * 같은 key로 동시에 들어온 작업을 하나로 합쳐 실행합니다.
+ * 먼저 들어온 thread만 작업을 실행하고, 실행 중에 들어온 thread는 그 결과(또는 예외)를 함께 받습니다.
+ * 작업이 끝나면 key는 제거되므로 이후 요청은 새로 실행됩니다.
+ *
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) return join(inFlight);
+
+        try {
+            V value = supplier.get();
+            call.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Error 등으로 끝나도 기다리는 thread가 멈추지 않도록 항상 future를 완료
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    private V join(CompletableFuture<V> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+}
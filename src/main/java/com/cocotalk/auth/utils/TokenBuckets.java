@@ -0,0 +1,69 @@
+package com.cocotalk.auth.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * key별 token bucket 모음 (서버 local)
+ *
+ * bucket은 key의 hash로 고른 lock(stripe)으로 보호하므로 서로 다른 key의 요청은 대부분 경합하지 않습니다.
+ * 가득 찰 때까지 사용되지 않은 bucket은 새 bucket과 같으므로 그 시간이 지나면 지워서 메모리를 제한합니다.
+ *
+ */
+public class TokenBuckets {
+    private final Object[] locks;
+    private final Cache<String, Bucket> buckets;
+    private final double capacity;
+    private final double tokensPerNano;
+
+    /**
+     * @param capacity 최대 token 수 (순간적으로 허용하는 요청 수)
+     * @param refillPerSecond 초당 채워지는 token 수
+     * @param stripes lock 수
+     * @param maxKeys 최대 key 수
+     */
+    public TokenBuckets(long capacity, double refillPerSecond, int stripes, long maxKeys) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / 1_000_000_000d;
+        this.locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new Object();
+        }
+        long fullRefillMillis = (long) Math.ceil(capacity / refillPerSecond * 1000);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofMillis(fullRefillMillis + 1000))
+                .build();
+    }
+
+    /**
+     * key의 bucket에서 token 하나를 꺼냅니다.
+     *
+     * @return token이 있으면 true, 없으면 false (요청 거절)
+     */
+    public boolean tryAcquire(String key) {
+        long now = System.nanoTime();
+        Bucket bucket = buckets.get(key, k -> new Bucket(capacity, now));
+        synchronized (locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length]) {
+            if (now > bucket.refilledAt) {
+                bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.refilledAt) * tokensPerNano);
+                bucket.refilledAt = now;
+            }
+            if (bucket.tokens < 1) return false;
+            bucket.tokens -= 1;
+            return true;
+        }
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private long refilledAt; // System.nanoTime()
+
+        private Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cocotalk.auth.utils.password;
+
+/**
+ *
+ * 비밀번호 hash 방식
+ * 저장되는 hash 문자열에 방식과 cost가 함께 기록되므로, 여러 방식의 hash가 섞여 있어도 각자의 방식으로 검증할 수 있습니다.
+ *
+ */
+public interface PasswordHasher {
+
+    /**
+     * @param encoded 저장된 hash 문자열
+     * @return 이 방식으로 만든 hash인지 여부
+     */
+    boolean supports(String encoded);
+
+    String hash(String rawPassword);
+
+    boolean verify(String rawPassword, String encoded);
+
+    /**
+     * @param encoded 이 방식으로 만든 hash 문자열
+     * @return 현재 cost보다 약한 설정으로 만든 hash라서 다시 hash해야 하는지 여부
+     */
+    boolean needsUpgrade(String encoded);
+}
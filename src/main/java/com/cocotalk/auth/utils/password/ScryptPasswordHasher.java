@@ -0,0 +1,116 @@
+package com.cocotalk.auth.utils.password;
+
+import lombok.Getter;
+import org.bouncycastle.crypto.generators.SCrypt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ *
+ * scrypt (memory-hard) hash
+ * 형식 : $s1${log2(N)}${r}${p}${salt}${hash}  (salt, hash는 padding 없는 base64)
+ *
+ */
+public class ScryptPasswordHasher implements PasswordHasher {
+    static final String PREFIX = "$s1$";
+    private static final int SALT_LENGTH = 16;
+    private static final int KEY_LENGTH = 32;
+    private static final int MAX_LOG_N = 20; // 저장된 값이 잘못되었을 때 과도한 메모리를 쓰지 않도록 제한
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    private final SecureRandom random = new SecureRandom();
+    private final int r;
+    private final int p;
+    @Getter
+    private volatile int logN;
+
+    public ScryptPasswordHasher(int logN, int r, int p) {
+        this.logN = logN;
+        this.r = r;
+        this.p = p;
+    }
+
+    /**
+     * 검증 한 번이 targetMillis를 넘지 않는 가장 큰 N을 찾아 이후 hash에 사용합니다.
+     *
+     * @return 선택한 log2(N)
+     */
+    public int calibrate(long targetMillis, int minLogN, int maxLogN) {
+        int selected = minLogN;
+        while (selected < maxLogN && measure(selected + 1) <= targetMillis) {
+            selected++;
+        }
+        logN = selected;
+        return selected;
+    }
+
+    @Override
+    public boolean supports(String encoded) {
+        return encoded != null && encoded.startsWith(PREFIX);
+    }
+
+    @Override
+    public String hash(String rawPassword) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        int currentLogN = logN;
+        byte[] key = derive(rawPassword, salt, currentLogN, r, p);
+        return PREFIX + currentLogN + "$" + r + "$" + p + "$" + ENCODER.encodeToString(salt) + "$" + ENCODER.encodeToString(key);
+    }
+
+    @Override
+    public boolean verify(String rawPassword, String encoded) {
+        String[] parts = parse(encoded);
+        if (parts == null) return false;
+        try {
+            int encodedLogN = Integer.parseInt(parts[2]);
+            int encodedR = Integer.parseInt(parts[3]);
+            int encodedP = Integer.parseInt(parts[4]);
+            if (encodedLogN < 1 || encodedLogN > MAX_LOG_N) return false;
+            byte[] salt = DECODER.decode(parts[5]);
+            byte[] expected = DECODER.decode(parts[6]);
+            byte[] actual = derive(rawPassword, salt, encodedLogN, encodedR, encodedP);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsUpgrade(String encoded) {
+        String[] parts = parse(encoded);
+        if (parts == null) return true;
+        try {
+            return Integer.parseInt(parts[2]) < logN
+                    || Integer.parseInt(parts[3]) != r
+                    || Integer.parseInt(parts[4]) != p;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private long measure(int candidateLogN) {
+        byte[] salt = new byte[SALT_LENGTH];
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) { // 첫 실행은 JIT 등의 영향이 있어 가장 빠른 값을 사용
+            long start = System.nanoTime();
+            derive("calibration", salt, candidateLogN, r, p);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+        return best;
+    }
+
+    private static byte[] derive(String rawPassword, byte[] salt, int logN, int r, int p) {
+        return SCrypt.generate(rawPassword.getBytes(StandardCharsets.UTF_8), salt, 1 << logN, r, p, KEY_LENGTH);
+    }
+
+    private static String[] parse(String encoded) {
+        if (encoded == null || !encoded.startsWith(PREFIX)) return null;
+        String[] parts = encoded.split("\\$");
+        return parts.length == 7 ? parts : null;
+    }
+}
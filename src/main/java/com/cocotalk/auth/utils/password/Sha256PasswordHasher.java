@@ -0,0 +1,33 @@
+package com.cocotalk.auth.utils.password;
+
+import com.cocotalk.auth.utils.SHA256Utils;
+
+/**
+ *
+ * 이전 방식의 salt + SHA-256 hash (prefix 없는 64자 hex)
+ * 기존 비밀번호 검증에만 사용하고, 로그인에 성공하면 현재 방식으로 다시 hash합니다.
+ *
+ */
+public class Sha256PasswordHasher implements PasswordHasher {
+    private static final int LENGTH = 64;
+
+    @Override
+    public boolean supports(String encoded) {
+        return encoded != null && encoded.length() == LENGTH && encoded.charAt(0) != '$';
+    }
+
+    @Override
+    public String hash(String rawPassword) {
+        return SHA256Utils.getEncrypt(rawPassword);
+    }
+
+    @Override
+    public boolean verify(String rawPassword, String encoded) {
+        return SHA256Utils.matches(rawPassword, encoded);
+    }
+
+    @Override
+    public boolean needsUpgrade(String encoded) {
+        return false;
+    }
+}
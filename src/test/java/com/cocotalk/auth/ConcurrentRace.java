@@ -0,0 +1,51 @@
+package com.cocotalk.auth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 같은 작업을 여러 thread에서 동시에 시작하고 성공한 수를 세는 테스트 도구
+ */
+public final class ConcurrentRace {
+
+    private ConcurrentRace() {
+    }
+
+    @FunctionalInterface
+    public interface Attempt {
+        /**
+         * @param i thread 번호
+         * @return 성공 여부 (예상한 실패는 false, 예상하지 못한 예외는 테스트 실패)
+         */
+        boolean run(int i) throws Exception;
+    }
+
+    /**
+     * threads 개의 attempt를 동시에 시작하고 성공한 수를 반환합니다.
+     */
+    public static int run(int threads, Attempt attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                int number = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (attempt.run(number)) succeeded.incrementAndGet();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return succeeded.get();
+    }
+}
@@ -0,0 +1,29 @@
+package com.cocotalk.auth.application;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 요청자가 써넣은 X-Forwarded-For 주소를 client ip로 사용하지 않는지 검증합니다.
+ */
+class ClientArgumentResolverTest {
+
+    @Test
+    void usesAddressAddedByTrustedProxy() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.2"); // gateway
+        request.addHeader("X-Forwarded-For", "1.1.1.1, 203.0.113.7"); // 1.1.1.1은 요청자가 써넣은 값
+
+        assertThat(resolver(1).getClientIp(request)).isEqualTo("203.0.113.7");
+        assertThat(resolver(0).getClientIp(request)).isEqualTo("10.0.0.2");
+        assertThat(resolver(3).getClientIp(request)).isEqualTo("1.1.1.1");
+    }
+
+    private static ClientArgumentResolver resolver(int trustedProxies) {
+        ClientArgumentResolver resolver = new ClientArgumentResolver();
+        resolver.trustedProxies = trustedProxies;
+        return resolver;
+    }
+}
@@ -0,0 +1,125 @@
+package com.cocotalk.auth.config;
+
+import io.lettuce.core.ReadFrom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisSentinel;
+import redis.embedded.RedisServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * embedded redis(standalone, master-replica + sentinel)로 RedisConfig의 연결 구성을 검증합니다.
+ */
+class RedisConfigTest {
+    private static final int MASTER_PORT = 6391;
+    private static final int REPLICA_PORT = 6392;
+    private static final int SENTINEL_PORT = 26391;
+
+    private final List<Runnable> cleanups = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (int i = cleanups.size() - 1; i >= 0; i--) cleanups.get(i).run();
+        cleanups.clear();
+    }
+
+    @Test
+    void standaloneUsesPoolAndCommandTimeout() {
+        startServer(RedisServer.builder().port(MASTER_PORT).build());
+        RedisConfig redisConfig = redisConfig(RedisConfig.MODE_STANDALONE);
+        redisConfig.redisPort = MASTER_PORT;
+
+        LettuceConnectionFactory connectionFactory = start(redisConfig.connectionFactory(null));
+        StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
+        template.opsForValue().set("key", "value");
+
+        assertThat(template.opsForValue().get("key")).isEqualTo("value");
+        assertThat(connectionFactory.getClientConfiguration()).isInstanceOf(LettucePoolingClientConfiguration.class);
+        assertThat(connectionFactory.getClientConfiguration().getCommandTimeout()).isEqualTo(Duration.ofMillis(500));
+    }
+
+    @Test
+    void sentinelReadsThroughReplicaTemplate() {
+        startServer(RedisServer.builder().port(MASTER_PORT).build());
+        startServer(RedisServer.builder().port(REPLICA_PORT).slaveOf("localhost", MASTER_PORT).build());
+        RedisSentinel sentinel = RedisSentinel.builder()
+                .port(SENTINEL_PORT).masterName("mymaster").masterPort(MASTER_PORT).quorumSize(1).build();
+        sentinel.start();
+        cleanups.add(sentinel::stop);
+        RedisConfig redisConfig = redisConfig(RedisConfig.MODE_SENTINEL);
+        redisConfig.sentinelMaster = "mymaster";
+        redisConfig.sentinelNodes = "localhost:" + SENTINEL_PORT;
+
+        StringRedisTemplate master = new StringRedisTemplate(start(redisConfig.connectionFactory(null)));
+        StringRedisTemplate replica = new StringRedisTemplate(start(redisConfig.connectionFactory(ReadFrom.REPLICA_PREFERRED)));
+        master.opsForValue().set("E/test@cocotalk.com", "123456");
+        replica.opsForValue().set("written-through-replica-template", "ok"); // 쓰기는 master로 전달
+
+        assertThat(master.opsForValue().get("written-through-replica-template")).isEqualTo("ok");
+        assertThat(waitFor(replica, "E/test@cocotalk.com")).isEqualTo("123456");
+    }
+
+    @Test
+    void clusterModeRequiresHashTaggedKeys() {
+        RedisConfig redisConfig = redisConfig(RedisConfig.MODE_CLUSTER);
+        redisConfig.clusterNodes = "localhost:7000,localhost:7001";
+
+        assertThatThrownBy(redisConfig::redisConfiguration).isInstanceOf(IllegalStateException.class);
+
+        redisConfig.hashTag = true;
+        assertThat(redisConfig.redisConfiguration()).isInstanceOf(RedisClusterConfiguration.class);
+    }
+
+    private RedisConfig redisConfig(String mode) {
+        RedisConfig redisConfig = new RedisConfig();
+        redisConfig.mode = mode;
+        redisConfig.redisHost = "localhost";
+        redisConfig.redisPassword = "";
+        redisConfig.maxRedirects = 3;
+        redisConfig.topologyRefresh = 30;
+        redisConfig.commandTimeout = 500;
+        redisConfig.connectTimeout = 500;
+        redisConfig.poolEnabled = true;
+        redisConfig.poolMaxActive = 4;
+        redisConfig.poolMaxIdle = 4;
+        redisConfig.poolMinIdle = 0;
+        redisConfig.poolMaxWait = 500;
+        return redisConfig;
+    }
+
+    private void startServer(RedisServer server) {
+        server.start();
+        cleanups.add(server::stop);
+    }
+
+    private LettuceConnectionFactory start(LettuceConnectionFactory connectionFactory) {
+        connectionFactory.afterPropertiesSet();
+        cleanups.add(connectionFactory::destroy);
+        return connectionFactory;
+    }
+
+    private static String waitFor(StringRedisTemplate template, String key) {
+        // replica 복제는 비동기이므로 잠시 기다림
+        for (int i = 0; i < 50; i++) {
+            String value = template.opsForValue().get(key);
+            if (value != null) return value;
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+package com.cocotalk.auth.config;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 호출마다 WebClient.create(...)로 만들던 기존 방식과 pushWebClient를 MockWebServer에 같은 수만큼 호출해 비교합니다.
+ * 방식별 소요 시간과 새로 연결한 connection 수를 log로 남깁니다.
+ */
+class WebClientConfigTest {
+    private static final Logger log = LoggerFactory.getLogger(WebClientConfigTest.class);
+    private static final int CALLS = 200;
+    private static final int CONCURRENCY = 8;
+
+    private MockWebServer server;
+    private String gatewayAPI;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("ok");
+            }
+        });
+        server.start();
+        String url = server.url("/").toString();
+        gatewayAPI = url.substring(0, url.length() - 1);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void pushWebClientReusesPooledConnections() throws InterruptedException {
+        Result perCall = measure(() -> WebClient.create(gatewayAPI + "/push")); // 기존 방식
+
+        WebClientConfig webClientConfig = webClientConfig();
+        ConnectionProvider connectionProvider = webClientConfig.downstreamConnectionProvider();
+        try {
+            WebClient pushWebClient = webClientConfig.pushWebClient(connectionProvider);
+            Result pooled = measure(() -> pushWebClient);
+
+            log.info("[WebClientConfigTest] calls={} per-call: {}ms, {} connections / pushWebClient: {}ms, {} connections",
+                    CALLS, perCall.elapsedMillis, perCall.connections, pooled.elapsedMillis, pooled.connections);
+            assertThat(perCall.succeeded).isEqualTo(CALLS);
+            assertThat(pooled.succeeded).isEqualTo(CALLS);
+            assertThat(pooled.connections).isBetween(1, CONCURRENCY);
+        } finally {
+            connectionProvider.dispose();
+        }
+    }
+
+    /**
+     * CONCURRENCY 개씩 동시에 CALLS 번 호출하고, 이번 호출들이 새로 연 connection 수를 셉니다.
+     * (MockWebServer는 connection마다 sequence number를 0부터 매김)
+     */
+    private Result measure(Supplier<WebClient> webClients) throws InterruptedException {
+        long start = System.nanoTime();
+        Long succeeded = Flux.range(0, CALLS)
+                .flatMap(i -> Mono.defer(() -> webClients.get().post()
+                        .uri("/device")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .bodyToMono(String.class)), CONCURRENCY)
+                .count()
+                .block();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        int connections = 0;
+        for (int i = 0; i < CALLS; i++) {
+            RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+            assertThat(request).isNotNull();
+            assertThat(request.getPath()).isEqualTo("/push/device");
+            if (request.getSequenceNumber() == 0) connections++;
+        }
+        return new Result(succeeded == null ? 0 : succeeded.intValue(), elapsedMillis, connections);
+    }
+
+    private WebClientConfig webClientConfig() {
+        WebClientConfig webClientConfig = new WebClientConfig();
+        ReflectionTestUtils.setField(webClientConfig, "gatewayAPI", gatewayAPI);
+        ReflectionTestUtils.setField(webClientConfig, "maxConnections", 200);
+        ReflectionTestUtils.setField(webClientConfig, "pendingAcquireTimeout", 1000L);
+        ReflectionTestUtils.setField(webClientConfig, "maxIdleTime", 30000L);
+        ReflectionTestUtils.setField(webClientConfig, "maxLifeTime", 300000L);
+        ReflectionTestUtils.setField(webClientConfig, "connectTimeout", 1000);
+        ReflectionTestUtils.setField(webClientConfig, "pushResponseTimeout", 2000L);
+        return webClientConfig;
+    }
+
+    private static final class Result {
+        private final int succeeded;
+        private final long elapsedMillis;
+        private final int connections;
+
+        private Result(int succeeded, long elapsedMillis, int connections) {
+            this.succeeded = succeeded;
+            this.elapsedMillis = elapsedMillis;
+            this.connections = connections;
+        }
+    }
+}
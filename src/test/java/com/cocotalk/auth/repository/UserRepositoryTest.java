@@ -0,0 +1,131 @@
+package com.cocotalk.auth.repository;
+
+import com.cocotalk.auth.ConcurrentRace;
+import com.cocotalk.auth.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 같은 아이디/이메일/전화번호로 동시에 가입할 때 unique 제약조건으로 한 명만 저장되는지 검증합니다.
+ * 로그인용 projection 조회(entity를 읽지 않고 필요한 컬럼만 조회)와 비밀번호 갱신도 확인합니다.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.globally_quoted_identifiers=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.cocotalk.auth.repository.UserRepositoryTest$SqlCapture"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // thread마다 별도 transaction으로 INSERT
+class UserRepositoryTest {
+    private static final int THREADS = 8;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        SqlCapture.statements.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentDuplicateSignupsKeepOneUser() throws Exception {
+        assertThat(race(i -> user("cocotalk", "user" + i + "@cocotalk.com", "0100000000" + i))).isEqualTo(1);
+        assertThat(race(i -> user("cid" + i, "same@cocotalk.com", "0101111111" + i))).isEqualTo(1);
+        assertThat(race(i -> user("phone" + i, "phone" + i + "@cocotalk.com", "01022222222"))).isEqualTo(1);
+        assertThat(userRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void credentialProjectionAndPasswordUpdate() {
+        Long id = userRepository.save(user("cocotalk", "coco@cocotalk.com", "01012345678")).getId();
+
+        UserCredential credential = userRepository.findCredentialByCid("cocotalk").orElseThrow();
+        assertThat(credential.getId()).isEqualTo(id);
+        assertThat(credential.getPassword()).isEqualTo("$s1$14$8$1$salt$hash");
+        assertThat(userRepository.findCredentialByCid("unknown")).isEmpty();
+
+        assertThat(userRepository.updatePassword(id, "$s1$15$8$1$salt$hash")).isEqualTo(1);
+        assertThat(userRepository.findCredentialByCid("cocotalk").orElseThrow().getPassword()).isEqualTo("$s1$15$8$1$salt$hash");
+    }
+
+    @Test
+    void credentialLookupLoadsNoEntityAndSelectsOnlyProjectedColumns() {
+        userRepository.save(user("cocotalk", "coco@cocotalk.com", "01012345678"));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        SqlCapture.statements.clear();
+
+        userRepository.findCredentialByCid("cocotalk").orElseThrow();
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(SqlCapture.statements).hasSize(1);
+        String select = SqlCapture.statements.get(0).toLowerCase(Locale.ROOT);
+        select = select.substring(0, select.indexOf(" from "));
+        assertThat(select).contains("\"id\"", "\"password\"")
+                .doesNotContain("\"profile\"", "\"nickname\"", "\"email\"", "\"status\"");
+    }
+
+    /**
+     * 실행된 SQL을 기록합니다.
+     */
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    /**
+     * THREADS 개의 가입을 동시에 시도하고 성공한 수를 반환합니다.
+     * 실패는 모두 unique 제약조건 위반이어야 합니다.
+     */
+    private int race(IntFunction<User> users) throws Exception {
+        return ConcurrentRace.run(THREADS, i -> {
+            try {
+                userRepository.save(users.apply(i));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                assertThat(UserRepository.isDuplicateUser(e)).isTrue();
+                return false;
+            }
+        });
+    }
+
+    private static User user(String cid, String email, String phone) {
+        return User.builder()
+                .cid(cid)
+                .password("$s1$14$8$1$salt$hash")
+                .username("코코")
+                .nickname("코코")
+                .email(email)
+                .phone(phone)
+                .status((short) 1)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.cocotalk.auth.repository.session;
+
+import com.cocotalk.auth.dto.common.ClientType;
+import com.cocotalk.auth.dto.common.payload.RefreshTokenRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 무효화 메시지의 순번이 건너뛰면 near cache를 비우는지 검증합니다.
+ */
+class SessionNearCacheTest {
+    private static final int PORT = 6393;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private SessionNearCache nearCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = new RedisServer(PORT);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", PORT));
+        connectionFactory.afterPropertiesSet();
+        nearCache = new SessionNearCache(new StringRedisTemplate(connectionFactory), new SimpleMeterRegistry());
+        nearCache.enabled = true;
+        nearCache.maxSize = 100;
+        nearCache.ttl = 30;
+        nearCache.heartbeat = 1;
+        nearCache.readFrom = "";
+        nearCache.init();
+        for (int i = 0; i < 50 && !Boolean.TRUE.equals(ReflectionTestUtils.getField(nearCache, "subscribed")); i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nearCache.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void skippedSequenceClearsCache() {
+        RefreshTokenRecord cached = record("cached");
+        nearCache.get(ClientType.MOBILE, 1L, () -> cached);
+        receive("node-a 1 WEB/2");
+        receive("node-a 2 WEB/3");
+
+        assertThat(nearCache.get(ClientType.MOBILE, 1L, () -> record("loaded"))).isSameAs(cached);
+
+        receive("node-a 4 WEB/4"); // 3번 메시지를 놓침
+
+        assertThat(nearCache.get(ClientType.MOBILE, 1L, () -> record("loaded")).getTokenId()).isEqualTo("loaded");
+    }
+
+    private void receive(String body) {
+        nearCache.onMessage(new DefaultMessage(SessionNearCache.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private static RefreshTokenRecord record(String tokenId) {
+        return RefreshTokenRecord.builder().tokenId(tokenId).digest("d").device("f").previousDigest("").build();
+    }
+}
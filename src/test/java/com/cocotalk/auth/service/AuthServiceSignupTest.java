@@ -0,0 +1,95 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.ConcurrentRace;
+import com.cocotalk.auth.dto.common.response.ResponseStatus;
+import com.cocotalk.auth.dto.signup.SignupInput;
+import com.cocotalk.auth.entity.mapper.UserMapperImpl;
+import com.cocotalk.auth.exception.CustomException;
+import com.cocotalk.auth.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * 같은 아이디로 동시에 가입하면 한 명만 가입되고, 나머지는 EXISTS_INFO로 응답하는지 검증합니다.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.globally_quoted_identifiers=true",
+        "mail.exp=180"})
+@Import({AuthService.class, UserMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // 가입마다 별도 transaction
+class AuthServiceSignupTest {
+    private static final int THREADS = 8;
+
+    @Autowired
+    private AuthService authService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private RedisService redisService;
+    @MockBean
+    private MailDispatcher mailDispatcher;
+    @MockBean
+    private S3Service s3Service;
+    @MockBean
+    private PasswordService passwordService;
+    @MockBean
+    private PushOutboxService pushOutboxService;
+    @MockBean
+    private CrashNotifier crashNotifier;
+    @MockBean
+    private LastLoginRecorder lastLoginRecorder;
+    @MockBean
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordService.hash(anyString())).thenReturn("$s1$14$8$1$salt$hash");
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentSignupsWithSameCidReturnExistsInfo() throws Exception {
+        // 실패한 가입은 모두 EXISTS_INFO여야 함
+        int created = ConcurrentRace.run(THREADS, i -> {
+            try {
+                authService.signup(signupInput("cocotalk", "user" + i + "@cocotalk.com", "0100000000" + i));
+                return true;
+            } catch (CustomException e) {
+                assertThat(e.getStatus()).isEqualTo(ResponseStatus.EXISTS_INFO);
+                return false;
+            }
+        });
+
+        assertThat(created).isEqualTo(1);
+        assertThat(userRepository.count()).isEqualTo(1);
+    }
+
+    private static SignupInput signupInput(String cid, String email, String phone) {
+        SignupInput signupInput = new SignupInput();
+        signupInput.setCid(cid);
+        signupInput.setPassword("password");
+        signupInput.setUsername("코코");
+        signupInput.setNickname("코코");
+        signupInput.setEmail(email);
+        signupInput.setPhone(phone);
+        signupInput.setStatus((short) 1);
+        return signupInput;
+    }
+}
@@ -0,0 +1,74 @@
+package com.cocotalk.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LastLoginRecorder가 유저별 최근 접속 시각만 모아 batch로 기록하고, 실패하면 다음 flush에 다시 기록하는지 검증합니다.
+ */
+class LastLoginRecorderTest {
+    private final List<List<Object[]>> batches = new ArrayList<>();
+    private boolean failing;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LastLoginRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (failing) throw new TransientDataAccessResourceException("connection refused");
+                batches.add(new ArrayList<>(batchArgs));
+                return new int[batchArgs.size()];
+            }
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        recorder = new LastLoginRecorder(jdbcTemplate, meterRegistry);
+        recorder.batchSize = 2;
+        recorder.init();
+    }
+
+    @Test
+    void keepsLatestLoginPerUserAndFlushesInBatches() {
+        LocalDateTime now = LocalDateTime.now();
+        recorder.record(3L, now);
+        recorder.record(1L, now.minusSeconds(10));
+        recorder.record(1L, now);
+        recorder.record(1L, now.minusSeconds(5)); // 늦게 도착한 이전 기록은 무시
+        recorder.record(2L, now);
+        assertThat(meterRegistry.get("last-login.pending").gauge().value()).isEqualTo(3);
+
+        recorder.flush();
+
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0).get(0)).containsExactly(Timestamp.valueOf(now), 1L);
+        assertThat(batches.get(0).get(1)[1]).isEqualTo(2L);
+        assertThat(batches.get(1).get(0)[1]).isEqualTo(3L);
+        assertThat(recorder.getPendingSize()).isZero();
+        assertThat(meterRegistry.get("last-login.flush").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesAfterFailedFlush() {
+        recorder.record(1L);
+        failing = true;
+        recorder.flush();
+        assertThat(recorder.getPendingSize()).isEqualTo(1);
+
+        failing = false;
+        recorder.shutdown();
+        assertThat(batches).hasSize(1);
+        assertThat(recorder.getPendingSize()).isZero();
+    }
+}
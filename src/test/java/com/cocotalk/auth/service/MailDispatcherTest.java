@@ -0,0 +1,77 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.exception.CustomException;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * GreenMail SMTP 서버로 MailDispatcher의 비동기 발송을 검증합니다.
+ */
+class MailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private SimpleMeterRegistry meterRegistry;
+    private MailDispatcher mailDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        meterRegistry = new SimpleMeterRegistry();
+        mailDispatcher = new MailDispatcher(mailSender, meterRegistry);
+        mailDispatcher.threads = 2;
+        mailDispatcher.queueSize = 10;
+        mailDispatcher.idleTimeout = 60000;
+        mailDispatcher.shutdownTimeout = 5000;
+        mailDispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        mailDispatcher.shutdown();
+    }
+
+    @Test
+    void submittedMailsAreDelivered() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mailDispatcher.submit(new InternetAddress("user" + i + "@cocotalk.com"), "CODE" + i);
+        }
+
+        assertThat(greenMail.waitForIncomingEmail(5000, 5)).isTrue();
+        MimeMessage[] messages = greenMail.getReceivedMessages();
+        assertThat(messages).hasSize(5);
+        assertThat(messages[0].getSubject()).isEqualTo(MailDispatcher.SUBJECT);
+        assertThat(GreenMailUtil.getBody(messages[0])).contains("CODE");
+        assertThat(meterRegistry.counter("mail.deliveries", "result", "sent").count()).isEqualTo(5);
+    }
+
+    @Test
+    void reservedSlotIsReturnedOnCancel() {
+        MailDispatcher.Reservation[] reservations = new MailDispatcher.Reservation[10];
+        for (int i = 0; i < reservations.length; i++) {
+            reservations[i] = mailDispatcher.reserve();
+        }
+        assertThatThrownBy(() -> mailDispatcher.reserve()).isInstanceOf(CustomException.class);
+
+        reservations[0].cancel();
+        reservations[0].cancel(); // 두 번 반환하지 않음
+
+        assertThat(mailDispatcher.getAvailableSlots()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,308 @@
+package com.cocotalk.auth.service;
+
+import com.cocotalk.auth.dto.common.ClientType;
+import com.cocotalk.auth.dto.common.TokenDto;
+import com.cocotalk.auth.dto.common.payload.RefreshTokenRecord;
+import com.cocotalk.auth.repository.email.EmailCodeRepository;
+import com.cocotalk.auth.repository.session.HashSessionRepository;
+import com.cocotalk.auth.repository.session.SessionNearCache;
+import com.cocotalk.auth.repository.session.StringSessionRepository;
+import com.cocotalk.auth.service.RedisService.EmailCheckResult;
+import com.cocotalk.auth.service.RedisService.EmailIssueResult;
+import com.cocotalk.auth.service.RedisService.Rotation;
+import com.cocotalk.auth.service.RedisService.RotationResult;
+import com.cocotalk.auth.utils.JwtKeyRing;
+import com.cocotalk.auth.utils.JwtUtils;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * embedded redis를 띄워 RedisService의 redis script 동작을 검증합니다.
+ */
+class RedisServiceTest {
+    private static final int PORT = 6390;
+    private static final String SECRET = "Y29jb3RhbGstYXV0aC10ZXN0LXNlY3JldC1rZXktMTIzNDU2Nzg5MA==";
+    private static final long USER_ID = 1L;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate stringRedisTemplate;
+    private RedisService redisService;
+
+    @BeforeAll
+    static void startRedis() {
+        redisServer = new RedisServer(PORT);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", PORT));
+        connectionFactory.afterPropertiesSet();
+
+        JwtUtils jwtUtils = new JwtUtils();
+        jwtUtils.setKeyRing(new JwtKeyRing(new MockEnvironment().withProperty("jwt.secret", SECRET)));
+        jwtUtils.setAccessTokenExp(3600);
+        jwtUtils.setRefreshTokenExp(1209600);
+        jwtUtils.setTokenVersion(2);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        stringRedisTemplate.getRequiredConnectionFactory().getConnection().flushAll();
+        redisService = new RedisService(stringRedisTemplate,
+                new StringSessionRepository(stringRedisTemplate, stringRedisTemplate),
+                new SessionNearCache(stringRedisTemplate, new SimpleMeterRegistry()),
+                emailCodeRepository(),
+                CircuitBreaker.ofDefaults("redis"));
+        redisService.refreshTokenExp = 1209600;
+        redisService.reissueGrace = 10;
+        redisService.mailCodeExp = 300;
+        redisService.pendingEmailCodeLimit = 10;
+        redisService.emailAttemptLimit = 5;
+        redisService.emailIssueLimit = 3;
+        redisService.emailIssueWindow = 3600;
+    }
+
+    @Test
+    void rotateReplacesStoredRefreshToken() {
+        String refreshToken = JwtUtils.createRefreshToken(USER_ID, "fcm");
+        redisService.setRefreshToken(ClientType.MOBILE, USER_ID, refreshToken);
+        TokenDto newToken = newToken("fcm");
+
+        Rotation rotation = redisService.rotateRefreshToken(ClientType.MOBILE, USER_ID, refreshToken, newToken);
+
+        assertThat(rotation.getResult()).isEqualTo(RotationResult.ROTATED);
+        RefreshTokenRecord record = redisService.getRefreshToken(ClientType.MOBILE, USER_ID);
+        assertThat(record.matches(newToken.getRefreshToken())).isTrue();
+        assertThat(record.isDevice("fcm")).isTrue();
+    }
+
+    @Test
+    void rotateRejectsUnknownRefreshToken() {
+        redisService.setRefreshToken(ClientType.MOBILE, USER_ID, JwtUtils.createRefreshToken(USER_ID, "fcm"));
+        String otherToken = JwtUtils.createRefreshToken(USER_ID, "other");
+
+        Rotation rotation = redisService.rotateRefreshToken(ClientType.MOBILE, USER_ID, otherToken, newToken("other"));
+
+        assertThat(rotation.getResult()).isEqualTo(RotationResult.MISMATCH);
+        assertThat(redisService.rotateRefreshToken(ClientType.WEB, USER_ID, otherToken, newToken("other")).getResult())
+                .isEqualTo(RotationResult.NOT_FOUND);
+    }
+
+    @Test
+    void concurrentReissueWithinGraceReceivesSameToken() {
+        String refreshToken = JwtUtils.createRefreshToken(USER_ID, "fcm");
+        redisService.setRefreshToken(ClientType.MOBILE, USER_ID, refreshToken);
+        TokenDto first = newToken("fcm");
+        redisService.rotateRefreshToken(ClientType.MOBILE, USER_ID, refreshToken, first);
+        String stored = stringRedisTemplate.opsForValue().get("RR/MOBILE/" + USER_ID);
+        assertThat(stored).doesNotContain(first.getAccessToken()).doesNotContain(first.getRefreshToken());
+
+        Rotation rotation = redisService.rotateRefreshToken(ClientType.MOBILE, USER_ID, refreshToken, newToken("fcm"));
+
+        assertThat(rotation.getResult()).isEqualTo(RotationResult.COALESCED);
+        assertThat(rotation.getToken().getAccessToken()).isEqualTo(first.getAccessToken());
+        assertThat(rotation.getToken().getRefreshToken()).isEqualTo(first.getRefreshToken());
+    }
+
+    @Test
+    void reusingRotatedRefreshTokenAfterGraceRevokesSession() {
+        String refreshToken = JwtUtils.createRefreshToken(USER_ID, "fcm");
+        redisService.setRefreshToken(ClientType.MOBILE, USER_ID, refreshToken);
+        redisService.rotateRefreshToken(ClientType.MOBILE, USER_ID, refreshToken, newToken("fcm"));
+        stringRedisTemplate.delete("RR/MOBILE/" + USER_ID); // 재발급 결과 보관 시간 만료
+
+        Rotation rotation = redisService.rotateRefreshToken(ClientType.MOBILE, USER_ID, refreshToken, newToken("fcm"));
+
+        assertThat(rotation.getResult()).isEqualTo(RotationResult.REUSED);
+        assertThat(redisService.getRefreshToken(ClientType.MOBILE, USER_ID)).isNull();
+    }
+
+    @Test
+    void legacyRefreshTokenIsMigratedBeforeRotation() {
+        String refreshToken = JwtUtils.createRefreshToken(USER_ID, "fcm");
+        stringRedisTemplate.opsForValue().set("RT/MOBILE/" + USER_ID, refreshToken);
+
+        Rotation rotation = redisService.rotateRefreshToken(ClientType.MOBILE, USER_ID, refreshToken, newToken("fcm"));
+
+        assertThat(rotation.getResult()).isEqualTo(RotationResult.ROTATED);
+        assertThat(RefreshTokenRecord.isRecord(stringRedisTemplate.opsForValue().get("RT/MOBILE/" + USER_ID))).isTrue();
+    }
+
+    @Test
+    void hashLayoutReadsAllSessionsAtOnceAndDropsEmptyHash() {
+        HashSessionRepository hashSessionRepository = new HashSessionRepository(stringRedisTemplate);
+        ReflectionTestUtils.setField(hashSessionRepository, "refreshTokenExp", 1209600L);
+        redisService = new RedisService(stringRedisTemplate, hashSessionRepository,
+                new SessionNearCache(stringRedisTemplate, new SimpleMeterRegistry()),
+                emailCodeRepository(),
+                CircuitBreaker.ofDefaults("redis"));
+        redisService.refreshTokenExp = 1209600;
+        String mobileToken = JwtUtils.createRefreshToken(USER_ID, "mobile");
+        String webToken = JwtUtils.createRefreshToken(USER_ID, "web");
+        redisService.setRefreshToken(ClientType.MOBILE, USER_ID, mobileToken);
+        stringRedisTemplate.opsForValue().set("RT/WEB/" + USER_ID, webToken); // 아직 옮겨지지 않은 string key
+
+        Map<ClientType, RefreshTokenRecord> sessions = redisService.getRefreshTokens(USER_ID);
+
+        assertThat(sessions.get(ClientType.MOBILE).matches(mobileToken)).isTrue();
+        assertThat(sessions.get(ClientType.WEB).matches(webToken)).isTrue();
+        assertThat(stringRedisTemplate.hasKey("RT/WEB/" + USER_ID)).isFalse();
+
+        redisService.deleteRefreshToken(ClientType.MOBILE, USER_ID);
+        assertThat(stringRedisTemplate.hasKey("S/" + USER_ID)).isTrue();
+        redisService.deleteRefreshToken(ClientType.WEB, USER_ID);
+        assertThat(stringRedisTemplate.hasKey("S/" + USER_ID)).isFalse();
+    }
+
+    @Test
+    void sessionsStoredBeforeHashTagAreMovedOnRead() {
+        StringSessionRepository sessionRepository = new StringSessionRepository(stringRedisTemplate, stringRedisTemplate);
+        ReflectionTestUtils.setField(sessionRepository, "hashTag", true);
+        ReflectionTestUtils.setField(sessionRepository, "migrateUntagged", true);
+        redisService = new RedisService(stringRedisTemplate, sessionRepository,
+                new SessionNearCache(stringRedisTemplate, new SimpleMeterRegistry()),
+                emailCodeRepository(),
+                CircuitBreaker.ofDefaults("redis"));
+        redisService.refreshTokenExp = 1209600;
+        redisService.reissueGrace = 10;
+        String refreshToken = JwtUtils.createRefreshToken(USER_ID, "fcm");
+        String value = RefreshTokenRecord.of(refreshToken, JwtUtils.getUnverifiedPayload(refreshToken)).toValue();
+        stringRedisTemplate.opsForValue().set("RT/MOBILE/" + USER_ID, value, Duration.ofSeconds(600));
+
+        assertThat(redisService.getRefreshToken(ClientType.MOBILE, USER_ID).matches(refreshToken)).isTrue();
+        assertThat(stringRedisTemplate.hasKey("RT/MOBILE/" + USER_ID)).isFalse();
+        assertThat(stringRedisTemplate.getExpire("RT/MOBILE/{" + USER_ID + "}")).isBetween(1L, 600L);
+        assertThat(redisService.rotateRefreshToken(ClientType.MOBILE, USER_ID, refreshToken, newToken("fcm")).getResult())
+                .isEqualTo(RotationResult.ROTATED);
+    }
+
+    @Test
+    void emailCodeIsQueuedWhileDegradedAndFlushedAfterRecovery() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("redis");
+        redisService = new RedisService(stringRedisTemplate,
+                new StringSessionRepository(stringRedisTemplate, stringRedisTemplate),
+                new SessionNearCache(stringRedisTemplate, new SimpleMeterRegistry()),
+                emailCodeRepository(),
+                circuitBreaker);
+        redisService.mailCodeExp = 300;
+        redisService.pendingEmailCodeLimit = 10;
+        redisService.emailAttemptLimit = 5;
+        redisService.emailIssueLimit = 3;
+        redisService.emailIssueWindow = 3600;
+        circuitBreaker.transitionToForcedOpenState();
+
+        assertThat(redisService.issueEmailCode("test@cocotalk.com", "127.0.0.1", "123456")).isEqualTo(EmailIssueResult.ISSUED);
+
+        assertThat(redisService.isDegraded()).isTrue();
+        assertThat(stringRedisTemplate.hasKey("EV/test@cocotalk.com")).isFalse();
+
+        circuitBreaker.transitionToClosedState();
+        redisService.flushEmailCodes();
+
+        assertThat(stringRedisTemplate.hasKey("EV/test@cocotalk.com")).isTrue();
+        assertThat(redisService.consumeEmailCode("test@cocotalk.com", "123456")).isEqualTo(EmailCheckResult.VALID);
+    }
+
+    @Test
+    void degradedIssuesAreCappedLocallyAndFlushedPastRedisCap() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("redis");
+        redisService = new RedisService(stringRedisTemplate,
+                new StringSessionRepository(stringRedisTemplate, stringRedisTemplate),
+                new SessionNearCache(stringRedisTemplate, new SimpleMeterRegistry()),
+                emailCodeRepository(),
+                circuitBreaker);
+        redisService.mailCodeExp = 300;
+        redisService.pendingEmailCodeLimit = 10;
+        redisService.emailAttemptLimit = 5;
+        redisService.emailIssueLimit = 2;
+        redisService.emailIssueWindow = 3600;
+        for (int i = 0; i < 3; i++) {
+            redisService.issueEmailCode("test@cocotalk.com", null, "code" + i); // redis의 발급 횟수를 모두 사용
+        }
+        circuitBreaker.transitionToForcedOpenState();
+
+        assertThat(redisService.issueEmailCode("test@cocotalk.com", null, "111111")).isEqualTo(EmailIssueResult.ISSUED);
+        assertThat(redisService.issueEmailCode("test@cocotalk.com", null, "222222")).isEqualTo(EmailIssueResult.ISSUED);
+        assertThat(redisService.issueEmailCode("test@cocotalk.com", null, "333333")).isEqualTo(EmailIssueResult.EMAIL_LIMITED);
+
+        circuitBreaker.transitionToClosedState();
+        redisService.flushEmailCodes();
+
+        // 이미 메일로 보낸 코드는 redis의 발급 제한과 관계없이 기록됨
+        assertThat(redisService.consumeEmailCode("test@cocotalk.com", "222222")).isEqualTo(EmailCheckResult.VALID);
+        assertThat(redisService.consumeEmailCode("test@cocotalk.com", "222222")).isEqualTo(EmailCheckResult.NOT_FOUND);
+    }
+
+    @Test
+    void emailCodeIsConsumedOnlyOnce() {
+        redisService.issueEmailCode("test@cocotalk.com", "127.0.0.1", "123456");
+
+        assertThat(redisService.consumeEmailCode("test@cocotalk.com", "654321")).isEqualTo(EmailCheckResult.MISMATCH);
+        assertThat(redisService.consumeEmailCode("test@cocotalk.com", "123456")).isEqualTo(EmailCheckResult.VALID);
+        assertThat(redisService.consumeEmailCode("test@cocotalk.com", "123456")).isEqualTo(EmailCheckResult.NOT_FOUND);
+    }
+
+    @Test
+    void emailCodeIsLockedAfterTooManyAttempts() {
+        redisService.issueEmailCode("test@cocotalk.com", "127.0.0.1", "123456");
+        for (int i = 0; i < 5; i++) {
+            redisService.consumeEmailCode("test@cocotalk.com", "000000");
+        }
+
+        assertThat(redisService.consumeEmailCode("test@cocotalk.com", "123456")).isEqualTo(EmailCheckResult.LOCKED);
+
+        redisService.issueEmailCode("test@cocotalk.com", "127.0.0.1", "999999");
+        assertThat(redisService.consumeEmailCode("test@cocotalk.com", "999999")).isEqualTo(EmailCheckResult.VALID);
+    }
+
+    @Test
+    void emailCodeIssuanceIsLimitedPerEmailAndIp() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(redisService.issueEmailCode("test@cocotalk.com", "10.0.0." + i, "code" + i)).isEqualTo(EmailIssueResult.ISSUED);
+        }
+        assertThat(redisService.issueEmailCode("test@cocotalk.com", "10.0.0.9", "code")).isEqualTo(EmailIssueResult.EMAIL_LIMITED);
+
+        for (int i = 0; i < 5; i++) {
+            redisService.issueEmailCode("user" + i + "@cocotalk.com", "127.0.0.1", "code");
+        }
+        assertThat(redisService.issueEmailCode("other@cocotalk.com", "127.0.0.1", "code")).isEqualTo(EmailIssueResult.IP_LIMITED);
+    }
+
+    private EmailCodeRepository emailCodeRepository() {
+        EmailCodeRepository emailCodeRepository = new EmailCodeRepository(stringRedisTemplate);
+        ReflectionTestUtils.setField(emailCodeRepository, "emailLimit", 3L);
+        ReflectionTestUtils.setField(emailCodeRepository, "emailWindow", 3600L);
+        ReflectionTestUtils.setField(emailCodeRepository, "ipLimit", 5L);
+        ReflectionTestUtils.setField(emailCodeRepository, "ipWindow", 3600L);
+        ReflectionTestUtils.setField(emailCodeRepository, "attemptLimit", 5L);
+        return emailCodeRepository;
+    }
+
+    private TokenDto newToken(String fcmToken) {
+        return TokenDto.builder()
+                .accessToken(JwtUtils.createAccessToken(USER_ID, fcmToken))
+                .refreshToken(JwtUtils.createRefreshToken(USER_ID, fcmToken))
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.cocotalk.auth.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GradientLimiter의 우선순위별 한도와 응답 시간에 따른 한도 조정을 검증합니다.
+ */
+class GradientLimiterTest {
+
+    @Test
+    void lowShareIsRejectedBeforeFullShare() {
+        GradientLimiter limiter = new GradientLimiter(10, 1, 100, 0.2, 1);
+
+        for (int i = 0; i < 6; i++) {
+            assertThat(limiter.tryAcquire(0.6)).isGreaterThanOrEqualTo(0);
+        }
+        assertThat(limiter.tryAcquire(0.6)).isEqualTo(-1);
+        assertThat(limiter.tryAcquire(1.0)).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRises() {
+        GradientLimiter limiter = new GradientLimiter(20, 1, 100, 0.2, 1);
+        for (int i = 0; i < 200; i++) {
+            limiter.release(limiter.tryAcquire(1.0) - TimeUnit.MILLISECONDS.toNanos(1), 0);
+        }
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limiter.release(limiter.tryAcquire(1.0) - TimeUnit.MILLISECONDS.toNanos(20), 0);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(before);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    void slowLaneAtItsUsualLatencyDoesNotShrinkLimit() {
+        GradientLimiter limiter = new GradientLimiter(20, 1, 100, 0.2, 2);
+        for (int i = 0; i < 200; i++) {
+            limiter.release(limiter.tryAcquire(1.0) - TimeUnit.MILLISECONDS.toNanos(1), 0);
+            limiter.release(limiter.tryAcquire(1.0) - TimeUnit.MILLISECONDS.toNanos(50), 1);
+        }
+        int before = limiter.getLimit();
+
+        // 느린 lane의 요청만 몰려도 그 lane의 평소 응답 시간이면 대기로 보지 않음
+        for (int i = 0; i < 50; i++) {
+            limiter.release(limiter.tryAcquire(1.0) - TimeUnit.MILLISECONDS.toNanos(50), 1);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(before);
+    }
+}
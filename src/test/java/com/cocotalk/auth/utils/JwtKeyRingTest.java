@@ -0,0 +1,51 @@
+package com.cocotalk.auth.utils;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * HS256에서 ES256으로 전환할 때 이전 token 검증과 kid 충돌 처리를 검증합니다.
+ */
+class JwtKeyRingTest {
+    private static final String SECRET = Base64.getEncoder().encodeToString("cocotalk-jwt-secret-for-test-0123456789".getBytes());
+
+    @Test
+    void defaultKidTokensStillVerifyAfterSwitchingToEs256() throws Exception {
+        String hsToken = new JwtKeyRing(new MockEnvironment().withProperty("jwt.secret", SECRET))
+                .sign(Jwts.builder().setSubject("1"));
+
+        JwtKeyRing ecKeyRing = new JwtKeyRing(es256().withProperty("jwt.kid", "ec-1"));
+
+        assertThat(ecKeyRing.parse(hsToken).getSubject()).isEqualTo("1");
+        assertThat(ecKeyRing.parse(ecKeyRing.sign(Jwts.builder().setSubject("2"))).getSubject()).isEqualTo("2");
+    }
+
+    @Test
+    void failsWhenEcKeyReusesHmacKid() throws Exception {
+        assertThatThrownBy(() -> new JwtKeyRing(es256()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("default");
+        // 이전 secret을 폐기하면 default kid를 ES256 key에 사용할 수 있음
+        new JwtKeyRing(es256().withProperty("jwt.legacy-retired", "true"));
+    }
+
+    private static MockEnvironment es256() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        return new MockEnvironment()
+                .withProperty("jwt.algorithm", "ES256")
+                .withProperty("jwt.secret", SECRET)
+                .withProperty("jwt.ec.private-key", Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()))
+                .withProperty("jwt.ec.public-key", Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+    }
+}
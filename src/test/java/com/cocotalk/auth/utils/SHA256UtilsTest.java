@@ -0,0 +1,54 @@
+package com.cocotalk.auth.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SHA256Utils의 결과가 이전 구현(원본 + salt 이어붙인 뒤 StringBuffer로 hex 변환)과 같은지 검증합니다.
+ */
+class SHA256UtilsTest {
+    private static final String SALT = "cocotalk-salt";
+
+    @BeforeAll
+    static void setUp() {
+        new SHA256Utils().setSalt(SALT);
+    }
+
+    @Test
+    void encryptIsIdenticalToPreviousImplementation() throws Exception {
+        for (String source : new String[]{"", "password1234", "비밀번호!@#", "a".repeat(1000)}) {
+            assertThat(SHA256Utils.getEncrypt(source)).isEqualTo(previousEncrypt(source));
+        }
+    }
+
+    @Test
+    void matchesComparesWithStoredHash() {
+        String encrypted = SHA256Utils.getEncrypt("password1234");
+
+        assertThat(SHA256Utils.matches("password1234", encrypted)).isTrue();
+        assertThat(SHA256Utils.matches("password1235", encrypted)).isFalse();
+        assertThat(SHA256Utils.matches("password1234", encrypted.substring(1))).isFalse();
+        assertThat(SHA256Utils.matches("password1234", null)).isFalse();
+    }
+
+    private static String previousEncrypt(String source) throws Exception {
+        byte[] saltBytes = SALT.getBytes(StandardCharsets.UTF_8);
+        byte[] a = source.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[a.length + saltBytes.length];
+        System.arraycopy(a, 0, bytes, 0, a.length);
+        System.arraycopy(saltBytes, 0, bytes, a.length, saltBytes.length);
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(bytes);
+        byte[] byteData = md.digest();
+        StringBuffer sb = new StringBuffer();
+        for (byte b : byteData) {
+            sb.append(Integer.toString((b & 0xFF) + 256, 16).substring(1));
+        }
+        return sb.toString();
+    }
+}
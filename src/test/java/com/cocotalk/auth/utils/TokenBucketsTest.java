@@ -0,0 +1,32 @@
+package com.cocotalk.auth.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TokenBuckets가 key별로 burst 만큼만 허용하고 시간이 지나면 다시 채워지는지 검증합니다.
+ */
+class TokenBucketsTest {
+
+    @Test
+    void rejectsAfterBurstPerKey() {
+        TokenBuckets buckets = new TokenBuckets(3, 0.001, 4, 100);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(buckets.tryAcquire("1.1.1.1")).isTrue();
+        }
+        assertThat(buckets.tryAcquire("1.1.1.1")).isFalse();
+        assertThat(buckets.tryAcquire("2.2.2.2")).isTrue();
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        TokenBuckets buckets = new TokenBuckets(1, 20, 4, 100);
+
+        assertThat(buckets.tryAcquire("key")).isTrue();
+        assertThat(buckets.tryAcquire("key")).isFalse();
+        Thread.sleep(100);
+        assertThat(buckets.tryAcquire("key")).isTrue();
+    }
+}
@@ -0,0 +1,31 @@
+package com.cocotalk.auth.utils.password;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScryptPasswordHasherTest {
+
+    @Test
+    void verifiesOwnHashAndRejectsOthers() {
+        ScryptPasswordHasher hasher = new ScryptPasswordHasher(10, 8, 1);
+
+        String encoded = hasher.hash("password1234");
+
+        assertThat(encoded).startsWith("$s1$10$8$1$").hasSizeLessThanOrEqualTo(128);
+        assertThat(hasher.supports(encoded)).isTrue();
+        assertThat(hasher.verify("password1234", encoded)).isTrue();
+        assertThat(hasher.verify("password1235", encoded)).isFalse();
+        assertThat(hasher.verify("password1234", "$s1$10$8$1$broken")).isFalse();
+        assertThat(hasher.supports("5e884898da28047151d0e56f8dc6292773603d0d6aabbdd62a11ef721d1542d8")).isFalse();
+    }
+
+    @Test
+    void hashWithLowerCostNeedsUpgrade() {
+        String encoded = new ScryptPasswordHasher(10, 8, 1).hash("password1234");
+
+        assertThat(new ScryptPasswordHasher(10, 8, 1).needsUpgrade(encoded)).isFalse();
+        assertThat(new ScryptPasswordHasher(11, 8, 1).needsUpgrade(encoded)).isTrue();
+        assertThat(new ScryptPasswordHasher(11, 8, 1).verify("password1234", encoded)).isTrue();
+    }
+}